@@ -23,7 +23,9 @@ import it.unimi.dsi.bits.Fast;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntArrays;
 import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.io.FastByteArrayOutputStream;
 import it.unimi.dsi.fastutil.io.FastMultiByteArrayInputStream;
+import it.unimi.dsi.fastutil.longs.AbstractLongBigList;
 import it.unimi.dsi.fastutil.longs.AbstractLongIterator;
 import it.unimi.dsi.fastutil.longs.LongBigList;
 import it.unimi.dsi.io.ByteBufferInputStream;
@@ -34,6 +36,7 @@ import it.unimi.dsi.lang.MutableString;
 import it.unimi.dsi.lang.ObjectParser;
 import it.unimi.dsi.logging.ProgressLogger;
 import it.unimi.dsi.sux4j.util.EliasFanoMonotoneLongBigList;
+import it.unimi.dsi.util.ByteBufferLongBigList;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -47,13 +50,20 @@ import java.lang.reflect.InvocationTargetException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel.MapMode;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Formatter;
 import java.util.Locale;
 import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
@@ -206,6 +216,13 @@ import com.martiansoftware.jsap.UnflaggedOption;
  * extension <samp>.obl</samp>. The list will be quickly deserialised
  * if its modification date is later than that of the offset file.
  * 
+ * <p>Similarly, the main method of this class can store an {@link EliasFanoMonotoneLongBigList} containing
+ * the cumulative outdegrees of the graph (i.e., for each node <var>x</var>, the number of arcs going out of nodes smaller than <var>x</var>)
+ * in a file with extension <samp>.degrees</samp>, which is
+ * deserialised together with the offsets if its modification date is later than that of the graph file. In this case, {@link #outdegree(int)}
+ * does not access the graph file at all, and {@link #cumulativeOutdegrees()} makes it possible to split the graph into ranges of nodes with
+ * approximately the same number of arcs.
+ * 
  * <P>Optionally, this class may load no offsets at all (see {@link BVGraph#loadSequential(CharSequence)}. In this case, the only
  * way to access the graph is by creating a {@link #nodeIterator()}.
  *
@@ -221,6 +238,12 @@ import com.martiansoftware.jsap.UnflaggedOption;
  * <p>Another interesting alternative is memory mapping. When using {@link BVGraph#loadMapped(CharSequence)},
  * the graph will be mapped into memory, and the offsets loaded. The graph will provide random access and behave
  * as if it was loaded into memory, but of course the access will be slower.
+ *
+ * <p>The main method of this class has also an option that stores the offsets as a flat file of longs
+ * (in big-endian order) with extension <samp>.offsets64</samp>. If such a file exists, and its modification date is later than that of the offset file,
+ * {@link BVGraph#loadMapped(CharSequence)} maps it into memory, too, instead of building a list of offsets on the heap: loading
+ * then requires no deserialisation at all, and the memory used is just that of the operating-system page cache. The file uses
+ * 64 bits per node, so it is usually larger than the graph offsets in compressed form.
  */
 
 
@@ -238,10 +261,18 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 	public static final String OFFSETS_EXTENSION = ".offsets";
 	/** The standard extension for the cached {@link LongBigList} containing the graph offsets. */
 	public static final String OFFSETS_BIG_LIST_EXTENSION = ".obl";
+	/** The standard extension for the memory-mappable flat file of offsets. */
+	public static final String OFFSETS_LONGS_EXTENSION = ".offsets64";
 	/** The standard extension for the stream of node outdegrees. */
 	public static final String OUTDEGREES_EXTENSION = ".outdegrees";
+	/** The standard extension for the cached {@link LongBigList} containing the cumulative outdegrees. */
+	public static final String DEGREES_EXTENSION = ".degrees";
 	/** The buffer size we use for most operations. */
 	private static final int STD_BUFFER_SIZE = 1024 * 1024;
+	/** The number of chunks per thread used by parallel compression, so that threads compressing faster chunks do not stay idle. */
+	private static final int CHUNKS_PER_THREAD = 16;
+	/** The minimum number of nodes in a chunk used by parallel compression. */
+	private static final int MIN_CHUNK_SIZE = 4096;
 
 	/** This number classifies the present graph format. When new features require introducing binary incompatibilities,
 		this number is bumped so to ensure that old classes do not try to read graphs they cannot understand. */
@@ -299,6 +330,12 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 	 * Elias&ndash;Fano monotone list containing the pointers of 
 	 * the bit streams of one each {@link #offsetType} nodes. */
 	protected LongBigList offsets;
+
+	/** The cumulative outdegrees of the graph (<var>n</var>&nbsp;+&nbsp;1 elements), or <code>null</code> if they have not been loaded. */
+	protected LongBigList cumulativeOutdegrees;
+
+	/** The cache of decoded successor arrays, or <code>null</code>. */
+	protected SuccessorCache successorCache;
 	
 	/** The offset type: 2 is memory-mapping, 1 is normal random-access loading, 0 means that we do not want to load offsets at all, -1 that
 	 * the we do not want even load the graph file. */
@@ -352,6 +389,12 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 	/** Flag: write residuals using variable-length nibble coding. */
 	public static final int RESIDUALS_NIBBLE = NIBBLE << 8;
 
+	/** Flag: write the residuals of each list using {@linkplain CompressionFlags#GROUP_VARINT group varint} coding.
+	 * Residuals are usually slightly larger than with &zeta;<sub><var>k</var></sub> coding, but they are decoded a whole value at a time.
+	 * Since residuals become more expensive, the compressor will choose to copy from references more often: for fast random access,
+	 * you should also use a small maximum reference count. */
+	public static final int RESIDUALS_GROUP_VARINT = GROUP_VARINT << 8;
+
 	/** Flag: write residuals using &golomb; coding. */
 	public static final int RESIDUALS_GOLOMB = GOLOMB << 8;
 
@@ -427,6 +470,8 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		result.graphStream = graphStream != null ? new FastMultiByteArrayInputStream( graphStream ) : null;
 		result.mappedGraphStream = mappedGraphStream != null ? mappedGraphStream.copy() : null;
 		result.offsets = offsets;
+		result.cumulativeOutdegrees = cumulativeOutdegrees;
+		result.successorCache = successorCache;
 		result.maxRefCount = maxRefCount;
 		result.windowSize = windowSize;
 		result.minIntervalLength = minIntervalLength;
@@ -708,6 +753,74 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		}
 	}
 
+	/** Writes the residuals of a node using group varint coding.
+	 *
+	 * <p>The values written are the same that would be written by {@link #writeResidual(OutputBitStream, long)}:
+	 * the difference between the first residual and <code>x</code> (mapped to a natural number), followed by the gaps between
+	 * consecutive residuals minus one. Each group of four values (the last group may be shorter) is preceded by a byte
+	 * containing, starting from its least significant bits, the length in bytes minus one of each value in the group.
+	 *
+	 * @param obs a graph-file output bit stream.
+	 * @param x the node whose residuals are written.
+	 * @param residual the residuals, in increasing order.
+	 * @param count the number of residuals.
+	 * @return the number of written bits.
+	 */
+	protected final int writeResidualBlock( final OutputBitStream obs, final int x, final int[] residual, final int count ) throws IOException {
+		int written = 0;
+		for( int g = 0; g < count; g += 4 ) {
+			int tag = 0;
+			final int end = Math.min( count, g + 4 );
+			// Values are cheap to compute, so we compute them twice (once for the tag, once for writing) rather than storing them
+			for( int i = g; i < end; i++ ) tag |= residualBytes( residualValue( x, residual, i ) ) - 1 << 2 * ( i - g );
+			written += obs.writeInt( tag, 8 );
+			for( int i = g; i < end; i++ ) {
+				final long v = residualValue( x, residual, i );
+				written += obs.writeLong( v, 8 * residualBytes( v ) );
+			}
+		}
+		return written;
+	}
+
+	/** Returns the value written by {@link #writeResidualBlock(OutputBitStream, int, int[], int)} for a residual.
+	 *
+	 * @param x the node whose residuals are written.
+	 * @param residual the residuals, in increasing order.
+	 * @param i the index of a residual.
+	 * @return the difference between the first residual and <code>x</code> (mapped to a natural number) if <code>i</code> is zero,
+	 * the gap from the previous residual minus one otherwise.
+	 */
+	private static long residualValue( final int x, final int[] residual, final int i ) {
+		return i == 0 ? Fast.int2nat( (long)residual[ 0 ] - x ) : residual[ i ] - residual[ i - 1 ] - 1;
+	}
+
+	/** Returns the number of bytes used by group varint coding for a value.
+	 *
+	 * @param v a value smaller than 2<sup>32</sup>.
+	 * @return the number of bytes (between 1 and 4) necessary to write <code>v</code>.
+	 */
+	private static int residualBytes( final long v ) {
+		return v < 1 << 8 ? 1 : v < 1 << 16 ? 2 : v < 1 << 24 ? 3 : 4;
+	}
+
+	/** Reads the residuals of a node written by {@link #writeResidualBlock(OutputBitStream, int, int[], int)}.
+	 *
+	 * @param ibs a graph-file input bit stream, positioned before the residuals.
+	 * @param x the node whose residuals are read.
+	 * @param count the number of residuals.
+	 * @param residual an array of at least <code>count</code> elements that will be filled with the residuals.
+	 */
+	protected final void readResidualBlock( final InputBitStream ibs, final int x, final int count, final int[] residual ) throws IOException {
+		int prev = 0, tag = 0;
+		for( int i = 0; i < count; i++ ) {
+			if ( ( i & 3 ) == 0 ) tag = ibs.readInt( 8 );
+			final int bits = 8 + 8 * ( tag & 3 );
+			tag >>>= 2;
+			final long v = bits == 32 ? ibs.readInt( 32 ) & 0xFFFFFFFFL : ibs.readInt( bits );
+			residual[ i ] = prev = i == 0 ? (int)( x + Fast.nat2int( v ) ) : prev + (int)v + 1;
+		}
+	}
+
 	/* We now define the core methods that access the graph stored in
 	graphMemory or graphStream. */
 
@@ -723,6 +836,9 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		   in a BVGraph. To this purpose, we have special-purpose input bit stream that
 		   is used just to read outdegrees. */
 
+		// If we have cumulative outdegrees, we do not even need to access the graph.
+		if ( cumulativeOutdegrees != null ) return (int)( cumulativeOutdegrees.getLong( x + 1 ) - cumulativeOutdegrees.getLong( x ) );
+
 		try {
 			// Without offsets, we just give up.
 			if ( offsetType <= 0 ) throw new IllegalStateException( "You cannot compute the outdegree of a random node without offsets" );
@@ -744,10 +860,324 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		// a newly created input bit stream and null elsewhere.
 		if ( x < 0 || x >= n ) throw new IllegalArgumentException( "Node index out of range: " + x );
 		if ( offsetType <= 0 ) throw new UnsupportedOperationException( "Random access to successor lists is not possible with sequential or offline graphs" );
+		if ( successorCache != null ) {
+			final int[] s = cachedSuccessorArray( x );
+			if ( s != null ) return LazyIntIterators.wrap( s );
+		}
 		final InputBitStream ibs = isMemory ? new InputBitStream( graphMemory ) : new InputBitStream( isMapped ? mappedGraphStream.copy() : new FastMultiByteArrayInputStream( graphStream ), 0 );
 		return successors( x, offsets.getLong( x ), ibs, null, null );
 	}
 
+	@Override
+	public int[] successorArray( final int x ) {
+		if ( successorCache != null ) {
+			if ( x < 0 || x >= n ) throw new IllegalArgumentException( "Node index out of range: " + x );
+			if ( offsetType <= 0 ) throw new UnsupportedOperationException( "Random access to successor lists is not possible with sequential or offline graphs" );
+			final int[] s = cachedSuccessorArray( x );
+			if ( s != null ) return s;
+		}
+		return super.successorArray( x );
+	}
+
+	/** The accessor used by {@link #successors(int, int[])}, created lazily. */
+	private Accessor accessor;
+
+	/** Stores the successors of a given node into an array supplied by the caller.
+	 *
+	 * <p>This implementation decodes the successor list eagerly, using an {@linkplain Accessor accessor} owned by this graph, and
+	 * writes it directly into <code>buffer</code>: no object is allocated (after a short warm-up) and no method
+	 * is called per successor. Like {@link #outdegree(int)}, this method is not thread safe: each thread should use its own
+	 * {@linkplain #copy() copy} of the graph, or its own {@linkplain #accessor() accessor}.
+	 *
+	 * @param x a node.
+	 * @param buffer an array that will contain the successors of the node starting from index 0; it must
+	 * be at least as long as the outdegree of <code>x</code>.
+	 * @return the outdegree of <code>x</code>.
+	 * @throws IllegalArgumentException if <code>buffer</code> is shorter than the outdegree of <code>x</code>.
+	 */
+	@Override
+	public int successors( final int x, final int[] buffer ) {
+		if ( accessor == null ) accessor = accessor();
+		return accessor.successors( x, buffer );
+	}
+
+	/** Returns the successor array of a node from {@link #successorCache}, decoding and caching it if necessary.
+	 *
+	 * @param x a node.
+	 * @return the successor array of <code>x</code>, or <code>null</code> if the cache does not admit its length.
+	 */
+	private int[] cachedSuccessorArray( final int x ) {
+		final int d = outdegree( x );
+		if ( ! successorCache.admits( d ) ) return null;
+		int[] s = successorCache.get( x );
+		if ( s == null ) {
+			final InputBitStream ibs = isMemory ? new InputBitStream( graphMemory ) : new InputBitStream( isMapped ? mappedGraphStream.copy() : new FastMultiByteArrayInputStream( graphStream ), 0 );
+			s = new int[ d ];
+			LazyIntIterators.unwrap( successors( x, offsets.getLong( x ), ibs, null, null ), s );
+			successorCache.put( x, s );
+		}
+		return s;
+	}
+
+	/** Attaches a cache of decoded successor arrays to this graph, or detaches the current one.
+	 *
+	 * <p>When a cache is attached, {@link #successors(int)} and {@link #successorArray(int)} look up in the cache
+	 * the nodes whose outdegree is {@linkplain SuccessorCache#admits(int) admitted}, and cache their successor arrays after decoding them;
+	 * {@linkplain Accessor accessors} use the cache also for the lists referenced by the list being decoded.
+	 * The cache is shared by the {@linkplain #copy() copies} of this graph made after this call.
+	 *
+	 * @param successorCache a cache, or <code>null</code> to detach the current cache.
+	 */
+	public void successorCache( final SuccessorCache successorCache ) {
+		this.successorCache = successorCache;
+	}
+
+	/** Returns the cache of decoded successor arrays attached to this graph.
+	 *
+	 * @return the cache of decoded successor arrays attached to this graph, or <code>null</code>.
+	 * @see #successorCache(SuccessorCache)
+	 */
+	public SuccessorCache successorCache() {
+		return successorCache;
+	}
+
+
+	/** Returns a new accessor providing allocation-free random access to this graph.
+	 *
+	 * @return a new accessor for this graph.
+	 * @see Accessor
+	 */
+	public Accessor accessor() {
+		if ( offsetType <= 0 ) throw new UnsupportedOperationException( "Random access to successor lists is not possible with sequential or offline graphs" );
+		return new Accessor();
+	}
+
+	/** A reusable object providing random access to the outdegrees and successor lists of a {@link BVGraph}.
+	 *
+	 * <p>{@link BVGraph#successors(int)} creates a new input bit stream (and a new lazy iterator for each level of
+	 * references) at each call, and {@link BVGraph#outdegree(int)} uses a bit stream shared by all callers, so it cannot
+	 * be used concurrently. An accessor owns its bit stream and all the scratch buffers needed to decode a successor list eagerly,
+	 * references and intervals included; after a short warm-up in which buffers grow to their final size, queries
+	 * allocate nothing (except for arrays stored in the {@linkplain BVGraph#successorCache(SuccessorCache) successor cache}, if any).
+	 *
+	 * <p>An accessor must be used by a single thread, but any number of accessors over the same graph
+	 * can be used concurrently, with no need to {@linkplain BVGraph#copy() copy} the graph, provided that the offsets
+	 * of the graph support concurrent access (this is true of the offsets of graphs loaded by {@link BVGraph#load(CharSequence)}
+	 * and {@link BVGraph#loadMapped(CharSequence)}).
+	 */
+	public final class Accessor {
+		/** The bit stream used to read the graph. */
+		private final InputBitStream ibs;
+		/** For each level of references, the successor list decoded at that level. */
+		private int[][] successor = new int[ 1 ][ INITIAL_SUCCESSOR_LIST_LENGTH ];
+		/** For each level of references, the copy blocks read at that level. */
+		private int[][] block = new int[ 1 ][ INITIAL_SUCCESSOR_LIST_LENGTH ];
+		/** The successors copied from the reference list. */
+		private int[] copied = new int[ INITIAL_SUCCESSOR_LIST_LENGTH ];
+		/** The successors specified by intervals and residuals. */
+		private int[] extra = new int[ INITIAL_SUCCESSOR_LIST_LENGTH ];
+		/** The left extremes of the intervals. */
+		private int[] left = new int[ INITIAL_SUCCESSOR_LIST_LENGTH ];
+		/** The lengths of the intervals. */
+		private int[] len = new int[ INITIAL_SUCCESSOR_LIST_LENGTH ];
+		/** The residuals, if they are coded using group varint. */
+		private int[] residuals = new int[ INITIAL_SUCCESSOR_LIST_LENGTH ];
+
+		private Accessor() {
+			ibs = isMemory ? new InputBitStream( graphMemory ) : new InputBitStream( isMapped ? mappedGraphStream.copy() : new FastMultiByteArrayInputStream( graphStream ), 0 );
+		}
+
+		/** Returns the graph of this accessor.
+		 *
+		 * @return the graph of this accessor.
+		 */
+		public BVGraph graph() {
+			return BVGraph.this;
+		}
+
+		/** Returns the outdegree of a node.
+		 *
+		 * @param x a node.
+		 * @return the outdegree of <code>x</code>.
+		 */
+		public int outdegree( final int x ) {
+			if ( x < 0 || x >= n ) throw new IllegalArgumentException( "Node index out of range: " + x );
+			if ( cumulativeOutdegrees != null ) return (int)( cumulativeOutdegrees.getLong( x + 1 ) - cumulativeOutdegrees.getLong( x ) );
+			try {
+				position( offsets.getLong( x ) );
+				return readOutdegree( ibs );
+			}
+			catch( IOException cantHappen ) { throw new RuntimeException( cantHappen ); }
+		}
+
+		/** Returns a reference to an array containing the successors of a given node.
+		 *
+		 * <p>Only the entries with indices from 0 (inclusive) to the outdegree of <code>x</code> (exclusive) contain valid data.
+		 * Differently from {@link BVGraph#successorArray(int)}, the array is owned by this accessor, and it is valid
+		 * only until the next call to this method.
+		 *
+		 * @param x a node.
+		 * @return an array whose first elements are the successors of <code>x</code>; the array must not be modified by the caller.
+		 * @see #outdegree(int)
+		 */
+		public int[] successorArray( final int x ) {
+			if ( x < 0 || x >= n ) throw new IllegalArgumentException( "Node index out of range: " + x );
+			try {
+				decode( x, 0, null );
+				return successor[ 0 ];
+			}
+			catch( IOException cantHappen ) { LOGGER.fatal( "Accessing node " + x, cantHappen ); throw new RuntimeException( cantHappen ); }
+		}
+
+		/** Stores the successors of a given node into an array supplied by the caller.
+		 *
+		 * @param x a node.
+		 * @param buffer an array that will contain the successors of the node starting from index 0; it must
+		 * be at least as long as the outdegree of <code>x</code>.
+		 * @return the outdegree of <code>x</code>.
+		 * @throws IllegalArgumentException if <code>buffer</code> is shorter than the outdegree of <code>x</code>.
+		 * @see ImmutableGraph#successors(int, int[])
+		 */
+		public int successors( final int x, final int[] buffer ) {
+			if ( x < 0 || x >= n ) throw new IllegalArgumentException( "Node index out of range: " + x );
+			try {
+				return decode( x, 0, buffer );
+			}
+			catch( IOException cantHappen ) { LOGGER.fatal( "Accessing node " + x, cantHappen ); throw new RuntimeException( cantHappen ); }
+		}
+
+		/** Positions the bit stream, so that {@link InputBitStream#readBits()} returns the current position.
+		 *
+		 * @param offset a bit offset.
+		 */
+		private void position( final long offset ) throws IOException {
+			ibs.position( offset );
+			ibs.readBits( offset );
+		}
+
+		/** Decodes the successor list of a node into {@link #successor}<code>[ level ]</code>, or into a given buffer.
+		 *
+		 * @param x a node.
+		 * @param level the level of references of <code>x</code> (0 for the node actually requested).
+		 * @param buffer an array that will contain the successors of <code>x</code> in place of {@link #successor}<code>[ level ]</code>, or <code>null</code>.
+		 * @return the outdegree of <code>x</code>.
+		 */
+		private int decode( final int x, final int level, final int[] buffer ) throws IOException {
+			if ( level == successor.length ) {
+				successor = Arrays.copyOf( successor, level + 1 );
+				block = Arrays.copyOf( block, level + 1 );
+				successor[ level ] = new int[ INITIAL_SUCCESSOR_LIST_LENGTH ];
+				block[ level ] = new int[ INITIAL_SUCCESSOR_LIST_LENGTH ];
+			}
+
+			position( offsets.getLong( x ) );
+			final int d = readOutdegree( ibs );
+			if ( d == 0 ) return 0;
+			final int[] s;
+			if ( buffer == null ) s = successor[ level ] = IntArrays.ensureCapacity( successor[ level ], d );
+			else {
+				if ( buffer.length < d ) throw new IllegalArgumentException( "The buffer length (" + buffer.length + ") is smaller than the outdegree of node " + x + " (" + d + ")" );
+				s = buffer;
+			}
+
+			final SuccessorCache cache = successorCache != null && successorCache.admits( d ) ? successorCache : null;
+			if ( cache != null ) {
+				final int[] cached = cache.get( x );
+				if ( cached != null ) {
+					System.arraycopy( cached, 0, s, 0, d );
+					return d;
+				}
+			}
+
+			// We read the reference only if the actual window size is larger than one (i.e., the one specified by the user is larger than 0).
+			final int ref = windowSize > 0 ? readReference( ibs ) : -1;
+			int copiedCount = 0;
+
+			if ( ref > 0 ) {
+				final int blockCount = readBlockCount( ibs );
+				final int[] b = block[ level ] = IntArrays.ensureCapacity( block[ level ], blockCount );
+				for( int i = 0; i < blockCount; i++ ) b[ i ] = readBlock( ibs ) + ( i == 0 ? 0 : 1 );
+
+				// We decode the reference list, and then come back to the current list
+				final long position = ibs.readBits();
+				final int refOutdegree = decode( x - ref, level + 1, null );
+				position( position );
+
+				// Now we apply the copy blocks to the reference list
+				final int[] r = successor[ level + 1 ];
+				copied = IntArrays.ensureCapacity( copied, refOutdegree );
+				int p = 0;
+				for( int i = 0; i < blockCount; i++ ) {
+					if ( i % 2 == 0 ) {
+						System.arraycopy( r, p, copied, copiedCount, b[ i ] );
+						copiedCount += b[ i ];
+					}
+					p += b[ i ];
+				}
+				// If the block count is even, the rest of the reference list is copied implicitly.
+				if ( blockCount % 2 == 0 ) {
+					System.arraycopy( r, p, copied, copiedCount, refOutdegree - p );
+					copiedCount += refOutdegree - p;
+				}
+			}
+
+			int extraCount = d - copiedCount, e = 0;
+
+			if ( extraCount > 0 ) {
+				extra = IntArrays.ensureCapacity( extra, extraCount );
+				int intervalCount = 0;
+
+				// Intervals, if any
+				if ( minIntervalLength != NO_INTERVALS && ( intervalCount = ibs.readGamma() ) != 0 ) {
+					left = IntArrays.ensureCapacity( left, intervalCount );
+					len = IntArrays.ensureCapacity( len, intervalCount );
+					int prev = left[ 0 ] = (int)( Fast.nat2int( ibs.readLongGamma() ) + x );
+					len[ 0 ] = ibs.readGamma() + minIntervalLength;
+					prev += len[ 0 ];
+					extraCount -= len[ 0 ];
+					for( int i = 1; i < intervalCount; i++ ) {
+						left[ i ] = prev = ibs.readGamma() + prev + 1;
+						len[ i ] = ibs.readGamma() + minIntervalLength;
+						prev += len[ i ];
+						extraCount -= len[ i ];
+					}
+				}
+
+				// We merge intervals and residuals
+				final boolean blocked = residualCoding == GROUP_VARINT;
+				int r = 0;
+				if ( blocked && extraCount != 0 ) readResidualBlock( ibs, x, extraCount, residuals = IntArrays.ensureCapacity( residuals, extraCount ) );
+				int residual = extraCount == 0 ? Integer.MAX_VALUE : blocked ? residuals[ r++ ] : (int)( x + Fast.nat2int( readLongResidual( ibs ) ) );
+				for( int i = 0; i < intervalCount; i++ ) {
+					for( int j = 0; j < len[ i ]; j++ ) {
+						final int v = left[ i ] + j;
+						while( residual < v ) {
+							extra[ e++ ] = residual;
+							residual = --extraCount == 0 ? Integer.MAX_VALUE : blocked ? residuals[ r++ ] : residual + readResidual( ibs ) + 1;
+						}
+						extra[ e++ ] = v;
+					}
+				}
+				if ( blocked ) {
+					if ( extraCount != 0 ) {
+						extra[ e++ ] = residual;
+						System.arraycopy( residuals, r, extra, e, --extraCount );
+						e += extraCount;
+					}
+				}
+				else while( extraCount != 0 ) {
+					extra[ e++ ] = residual;
+					if ( --extraCount != 0 ) residual += readResidual( ibs ) + 1;
+				}
+			}
+
+			// Finally, we merge copied successors and extra successors
+			for( int i = 0, j = 0, k = 0; k < d; k++ ) s[ k ] = j == e || i < copiedCount && copied[ i ] < extra[ j ] ? copied[ i++ ] : extra[ j++ ];
+			if ( cache != null ) cache.put( x, Arrays.copyOf( s, d ) );
+			return d;
+		}
+	}
+
 
 	/** An iterator returning the offsets. */
 	private final static class OffsetsLongIterator extends AbstractLongIterator {
@@ -780,6 +1210,68 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 	}
 
 
+	/** An iterator returning the cumulative outdegrees of a graph. */
+	private final static class CumulativeOutdegreesLongIterator extends AbstractLongIterator {
+		private final NodeIterator nodeIterator;
+		private final int n;
+		private long cumulative;
+		private int i;
+
+		private CumulativeOutdegreesLongIterator( final ImmutableGraph graph ) {
+			this.nodeIterator = graph.nodeIterator();
+			this.n = graph.numNodes();
+		}
+
+		public boolean hasNext() {
+			return i <= n;
+		}
+
+		@Override
+		public long nextLong() {
+			if ( ! hasNext() ) throw new NoSuchElementException();
+			if ( i++ == 0 ) return 0;
+			nodeIterator.nextInt();
+			return cumulative += nodeIterator.outdegree();
+		}
+	}
+
+	/** Stores the offsets of a graph in a flat file of longs (in big-endian order), that will be memory-mapped
+	 * by {@link #loadMapped(CharSequence)}.
+	 *
+	 * @param graph a graph; its offset file will be read sequentially, and the flat file will be stored 
+	 * in a file with the same basename and extension {@link #OFFSETS_LONGS_EXTENSION}.
+	 */
+	public static void storeOffsetsLongs( final BVGraph graph ) throws IOException {
+		final InputBitStream offsetIbs = new InputBitStream( graph.basename() + OFFSETS_EXTENSION );
+		BinIO.storeLongs( new OffsetsLongIterator( graph, offsetIbs ), graph.basename() + OFFSETS_LONGS_EXTENSION );
+		offsetIbs.close();
+	}
+
+	/** Returns the cumulative outdegrees of this graph, if they have been loaded.
+	 *
+	 * <p>The element of index <var>x</var> of the returned list is the number of arcs going out of nodes smaller than <var>x</var>;
+	 * the last element is thus the number of arcs of the graph. 
+	 *
+	 * @return the cumulative outdegrees of this graph (<var>n</var>&nbsp;+&nbsp;1 elements), or <code>null</code> if
+	 * no file with extension {@link #DEGREES_EXTENSION} was found at load time.
+	 * @see #storeCumulativeOutdegrees(ImmutableGraph, CharSequence)
+	 */
+	public LongBigList cumulativeOutdegrees() {
+		return cumulativeOutdegrees;
+	}
+
+	/** Stores an {@link EliasFanoMonotoneLongBigList} containing the cumulative outdegrees of a graph,
+	 * in a file that will be loaded by the random-access load methods of this class.
+	 *
+	 * @param graph a graph (it will be scanned sequentially).
+	 * @param basename the basename of the graph; the list will be stored in a file with extension {@link #DEGREES_EXTENSION}.
+	 * @see #cumulativeOutdegrees()
+	 */
+	public static void storeCumulativeOutdegrees( final ImmutableGraph graph, final CharSequence basename ) throws IOException {
+		BinIO.storeObject( new EliasFanoMonotoneLongBigList( graph.numNodes() + 1, graph.numArcs() + 1, new CumulativeOutdegreesLongIterator( graph ) ), basename + DEGREES_EXTENSION );
+	}
+
+
 	/** An iterator returning the residuals of a node. */
 	private final static class ResidualIntIterator extends AbstractLazyIntIterator {
 		/** The graph associated to this iterator. */
@@ -790,13 +1282,19 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		private int next;
 		/** The number of remaining residuals. */
 		private int remaining;
+		/** The residuals, if they are coded using group varint (in which case they are read all at once); <code>null</code>, otherwise. */
+		private final int[] residual;
 		
 		private ResidualIntIterator( final BVGraph g, final InputBitStream ibs, final int residualCount, final int x ) {
 			this.g = g;
 			this.remaining = residualCount;
 			this.ibs = ibs;
 			try {
-				this.next = (int)( x  + Fast.nat2int( g.readLongResidual( ibs ) ) );
+				if ( g.residualCoding == GROUP_VARINT ) g.readResidualBlock( ibs, x, residualCount, residual = new int[ residualCount ] );
+				else {
+					residual = null;
+					this.next = (int)( x  + Fast.nat2int( g.readLongResidual( ibs ) ) );
+				}
 			}
 			catch ( IOException e ) {
 				throw new RuntimeException( e );
@@ -805,6 +1303,7 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 
 		public int nextInt() {
 			if ( remaining == 0 ) return -1;
+			if ( residual != null ) return residual[ residual.length - remaining-- ];
 			try {
 				final int result = next;
 				if ( --remaining != 0 ) next += g.readResidual( ibs ) + 1;
@@ -820,6 +1319,10 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 				remaining = 0;
 				return n;
 			}
+			if ( residual != null ) {
+				remaining -= n;
+				return n;
+			}
 			try {
 				for( int i = n; i-- != 0; ) next += g.readResidual( ibs ) + 1;
 				remaining -= n;
@@ -897,7 +1400,7 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 				}
 				// If the block count is even, we must compute the number of successors copied implicitly.
 				if ( window == null ) nextOffset = offsets.getLong( x - ref );
-				if ( blockCount % 2 == 0 ) copied += ( window != null ? outd[ refIndex ] : readOutdegree( outdegreeIbs, nextOffset ) ) - total;
+				if ( blockCount % 2 == 0 ) copied += ( window != null ? outd[ refIndex ] : cumulativeOutdegrees != null ? outdegree( x - ref ) : readOutdegree( outdegreeIbs, nextOffset ) ) - total;
 				extraCount = d - copied;
 			}
 			else extraCount = d;
@@ -966,8 +1469,8 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 
 	
 	private class BVGraphNodeIterator extends NodeIterator {
-		@SuppressWarnings("hiding")
-		final private int n = numNodes();
+		/** The node at which the iteration stops (usually, the number of nodes). */
+		final private int to;
 		/** Our bit stream. */
 		final InputBitStream ibs;
 		/** We keep the size of the cyclic buffer (the window size + 1 ) in a local variable. */
@@ -982,7 +1485,12 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		private int curr;
 
 		public BVGraphNodeIterator( final InputBitStream ibs, final int from ) throws IOException {
+			this( ibs, from, numNodes() );
+		}
+
+		public BVGraphNodeIterator( final InputBitStream ibs, final int from, final int to ) throws IOException {
 			this.from = from;
+			this.to = to;
 			this.ibs = ibs;
 			if ( from != 0 ) {
 				if ( offsetType <= 0 ) throw new IllegalStateException( "You cannot iterate from a chosen node without offsets" );
@@ -1016,7 +1524,7 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		}
 
 		public boolean hasNext() {
-			return ( curr < n - 1 );
+			return ( curr < to - 1 );
 		}
 
 		public LazyIntIterator successors() {
@@ -1067,6 +1575,54 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 			throw new RuntimeException( e );
 		}
 	}
+
+	/** Returns node iterators scanning disjoint consecutive ranges of nodes, which together cover the whole graph.
+	 *
+	 * <p>The ranges are balanced using the offsets, so that each iterator decodes approximately the same
+	 * number of bits. Each iterator has its own bit stream and starts at the beginning of its range with a window primed
+	 * with the {@linkplain #windowSize() previous} successor lists, so the iterators can be used concurrently.
+	 * Note that the iterators are built (and their windows primed) by the calling thread.
+	 *
+	 * @param howMany the number of iterators.
+	 * @return an array of <code>howMany</code> node iterators over consecutive ranges of nodes.
+	 * @throws UnsupportedOperationException if <code>howMany</code> is greater than one and this graph has no offsets.
+	 */
+	public NodeIterator[] splitNodeIterators( final int howMany ) {
+		if ( howMany <= 0 ) throw new IllegalArgumentException( "Invalid number of iterators: " + howMany );
+		if ( howMany == 1 ) return new NodeIterator[] { nodeIterator() };
+		if ( offsetType <= 0 ) throw new UnsupportedOperationException( "You cannot split a graph without offsets" );
+
+		final NodeIterator[] result = new NodeIterator[ howMany ];
+		final long bits = offsets.getLong( n );
+		int from = 0;
+		for( int i = 0; i < howMany; i++ ) {
+			final int to = i == howMany - 1 ? n : firstNodeAtOrAfter( bits * ( i + 1 ) / howMany, from );
+			try {
+				result[ i ] = new BVGraphNodeIterator( isMemory ? new InputBitStream( graphMemory ) : new InputBitStream( isMapped ? mappedGraphStream.copy() : new FastMultiByteArrayInputStream( graphStream ), 0 ), from, to );
+			}
+			catch ( IOException e ) {
+				throw new RuntimeException( e );
+			}
+			from = to;
+		}
+		return result;
+	}
+
+	/** Returns the first node whose successor list starts at or after a given bit offset.
+	 *
+	 * @param offset a bit offset.
+	 * @param from a node whose offset is known to be smaller than or equal to <code>offset</code>, or 0.
+	 * @return the first node whose offset is greater than or equal to <code>offset</code> (possibly the number of nodes).
+	 */
+	private int firstNodeAtOrAfter( final long offset, int from ) {
+		int to = n;
+		while( from < to ) {
+			final int mid = ( from + to ) >>> 1;
+			if ( offsets.getLong( mid ) < offset ) from = mid + 1;
+			else to = mid;
+		}
+		return from;
+	}
 	
 
 	/* The following private methods handle the flag mask. They are the only methods which replicate
@@ -1297,7 +1853,21 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		if ( properties.getProperty( "zetak" ) != null ) zetaK = Integer.parseInt( properties.getProperty( "zetak" ) );
 
 		if ( offsetType < -1 || offsetType > 2 ) throw new IllegalArgumentException( "Illegal offset type " + offsetType );
-		final InputBitStream offsetIbs = offsetType > 0 ? new InputBitStream( new FileInputStream( basename + OFFSETS_EXTENSION ), STD_BUFFER_SIZE ) : null;
+		// When mapping, we try to map a flat file of offsets, too.
+		if ( offsetType == 2 ) {
+			final File offsetsLongsFile = new File( basename + OFFSETS_LONGS_EXTENSION );
+			if ( offsetsLongsFile.exists() ) {
+				if ( new File( basename + OFFSETS_EXTENSION ).lastModified() > offsetsLongsFile.lastModified() ) LOGGER.warn( "A flat file of offsets was found, but the corresponding offsets file has a later modification time" );
+				else if ( offsetsLongsFile.length() != ( n + 1L ) * Long.SIZE / Byte.SIZE ) LOGGER.warn( "A flat file of offsets was found, but its length (" + offsetsLongsFile.length() + ") does not match the number of nodes" );
+				else {
+					final FileInputStream offsetsLongsStream = new FileInputStream( offsetsLongsFile );
+					offsets = ByteBufferLongBigList.map( offsetsLongsStream.getChannel(), ByteOrder.BIG_ENDIAN, MapMode.READ_ONLY );
+					offsetsLongsStream.close();
+				}
+			}
+		}
+
+		final InputBitStream offsetIbs = offsetType > 0 && offsets == null ? new InputBitStream( new FileInputStream( basename + OFFSETS_EXTENSION ), STD_BUFFER_SIZE ) : null;
 
 		if ( offsetType >= 0 ) {
 			final FileInputStream fis = new FileInputStream( basename + GRAPH_EXTENSION );
@@ -1328,7 +1898,7 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 			}
 		}
 		
-		if ( offsetType == 1 || offsetType == 2 ) {
+		if ( offsetIbs != null ) {
 			// read offsets, if required
 
 			if ( pl != null ) {
@@ -1352,12 +1922,27 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 			if ( pl != null ) {
 				pl.count = n + 1;
 				pl.done();
-				pl.logger.info( "Pointer bits per node: " + Util.format( ((EliasFanoMonotoneLongBigList)offsets).numBits() / ( n + 1.0 ) ) );
+				if ( offsets instanceof EliasFanoMonotoneLongBigList ) pl.logger.info( "Pointer bits per node: " + Util.format( ((EliasFanoMonotoneLongBigList)offsets).numBits() / ( n + 1.0 ) ) );
 			}
 		}
 
 		if ( offsetIbs != null ) offsetIbs.close();
 
+		if ( offsetType == 1 || offsetType == 2 ) {
+			// We try to load a cached list of cumulative outdegrees.
+			final File degreesFile = new File( basename + DEGREES_EXTENSION );
+			if ( degreesFile.exists() ) {
+				if ( new File( basename + GRAPH_EXTENSION ).lastModified() > degreesFile.lastModified() ) LOGGER.warn( "A cached long big list of cumulative outdegrees was found, but the corresponding graph file has a later modification time" );
+				else try {
+					cumulativeOutdegrees = (LongBigList)BinIO.loadObject( degreesFile );
+					if ( cumulativeOutdegrees.size64() != n + 1L ) throw new IllegalStateException( "The cached long big list of cumulative outdegrees has " + cumulativeOutdegrees.size64() + " elements, but the graph has " + n + " nodes" );
+				}
+				catch ( ClassNotFoundException e ) {
+					LOGGER.warn( "A cached long big list of cumulative outdegrees was found, but its class is unknown", e );
+				}
+			}
+		}
+
 		// We finally create the outdegreeIbs and, if needed, the two caches
 		if ( offsetType >= 0 ) outdegreeIbs = isMemory ? new InputBitStream( graphMemory ): new InputBitStream( isMapped ? mappedGraphStream.copy() : new FastMultiByteArrayInputStream( graphStream ), 0 );
 
@@ -1591,13 +2176,20 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 					residualArcs += residualCount;
 					updateBins( currNode, residual, residualCount, residualGapStats );
 				}
-				t = writeResidual( obs, Fast.int2nat( (long)( prev = residual[ 0 ] ) - currNode ) );
-				if ( forReal ) bitsForResiduals += t;
-				for( i = 1; i < residualCount; i++ ) {
-					if ( residual[ i ] == prev ) throw new IllegalArgumentException( "Repeated successor " + prev + " in successor list of node " + currNode );
-					t = writeResidual( obs, residual[ i ] - prev - 1 );
+				if ( residualCoding == GROUP_VARINT ) {
+					for( i = 1; i < residualCount; i++ ) if ( residual[ i ] == residual[ i - 1 ] ) throw new IllegalArgumentException( "Repeated successor " + residual[ i ] + " in successor list of node " + currNode );
+					t = writeResidualBlock( obs, currNode, residual, residualCount );
+					if ( forReal ) bitsForResiduals += t;
+				}
+				else {
+					t = writeResidual( obs, Fast.int2nat( (long)( prev = residual[ 0 ] ) - currNode ) );
 					if ( forReal ) bitsForResiduals += t;
-					prev = residual[ i ];
+					for( i = 1; i < residualCount; i++ ) {
+						if ( residual[ i ] == prev ) throw new IllegalArgumentException( "Repeated successor " + prev + " in successor list of node " + currNode );
+						t = writeResidual( obs, residual[ i ] - prev - 1 );
+						if ( forReal ) bitsForResiduals += t;
+						prev = residual[ i ];
+					}
 				}
 			
 				if ( STATS ) if ( forReal ) {
@@ -1637,6 +2229,46 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		g.storeInternal( graph, basename, pl );
 	}
 	
+	/** Writes the given graph using a given base name, compressing in parallel chunks of consecutive nodes.
+	 *
+	 * <p>The nodes of the graph are split into chunks that are compressed concurrently, each by a thread using
+	 * a {@linkplain ImmutableGraph#copy() copy} of the graph, into temporary files (in the default temporary-file directory); the
+	 * chunks are then stitched together at the bit level, in order, into the graph and offset files. Chunks are compressed independently:
+	 * the reference window is empty at the start of each chunk, so no reference crosses a chunk boundary, and reference chains are bounded
+	 * by <code>maxRefCount</code> exactly as in the sequential case. As a result, the graph might be very slightly larger than the one written by
+	 * {@link #store(ImmutableGraph, CharSequence, int, int, int, int, int, ProgressLogger)}, but it has exactly the same format.
+	 *
+	 * <p>If the graph does not support random access, or <code>threads</code> is one, this method just delegates to
+	 * {@link #store(ImmutableGraph, CharSequence, int, int, int, int, int, ProgressLogger)}.
+	 *
+	 * @param graph a graph to be compressed.
+	 * @param basename a base name.
+	 * @param windowSize the window size (-1 for the default value).
+	 * @param maxRefCount the maximum reference count (-1 for the default value).
+	 * @param minIntervalLength the minimum interval length (-1 for the default value, {@link #NO_INTERVALS} to disable).
+	 * @param zetaK the parameter used for residual &zeta;-coding, if used (-1 for the default value).
+	 * @param flags the flag mask.
+	 * @param threads the number of threads (0 for the number of available processors).
+	 * @param pl a progress logger to log the state of compression, or <code>null</code> if no logging is required.
+	 * @throws IOException if some exception is raised while writing the graph.
+	 */
+	public static void store( ImmutableGraph graph, CharSequence basename, int windowSize, int maxRefCount, int minIntervalLength, 
+		int zetaK, int flags, int threads, ProgressLogger pl ) throws IOException {
+		if ( threads < 0 ) throw new IllegalArgumentException( "Invalid number of threads: " + threads );
+		if ( threads == 0 ) threads = Runtime.getRuntime().availableProcessors();
+		if ( threads == 1 || STATS || ! graph.randomAccess() ) {
+			store( graph, basename, windowSize, maxRefCount, minIntervalLength, zetaK, flags, pl );
+			return;
+		}
+		BVGraph g = new BVGraph();
+		if ( windowSize != -1 ) g.windowSize = windowSize;
+		if ( maxRefCount != -1 ) g.maxRefCount = maxRefCount;
+		if ( minIntervalLength != -1 ) g.minIntervalLength = minIntervalLength;
+		if ( zetaK != -1 ) g.zetaK = zetaK;
+		g.setFlags( flags );
+		g.storeInternal( graph, basename, threads, pl );
+	}
+	
 	/** Writes the given graph using a given base name, without any progress logger.
 	 *
 	 * @param graph a graph to be compressed.
@@ -1705,39 +2337,67 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 	/** Bits used to write intervals. */
 	private long bitsForIntervals;
 	
-	/** Writes the given graph <code>graph</code> using a given base name, and the compression parameters and flags
-	 * of this graph object. Note that the latter is relevant only as far as parameters and flags are concerned; its
-	 * content is really irrelevant.
+	/** The number of arcs written during a call to {@link #storeInternal(ImmutableGraph, CharSequence, ProgressLogger)}. */
+	private long totLinks;
+	/** The sum of the reference chain lengths during a call to {@link #storeInternal(ImmutableGraph, CharSequence, ProgressLogger)}. */
+	private long totRef;
+	/** The sum of the reference distances during a call to {@link #storeInternal(ImmutableGraph, CharSequence, ProgressLogger)}. */
+	private long totDist;
+
+	/** Returns a new graph object with the same compression parameters and flags of this one, and with zeroed statistics.
 	 *
-	 * @param graph a graph to be compressed.
-	 * @param basename a base name.
-	 * @param pl a progress logger to measure the state of compression, or <code>null</code> if no logging is required.
-	 * @throws IOException if some exception is raised while writing the graph.
+	 * @return a new graph object that can be used to compress a part of a graph.
 	 */
-	private void storeInternal( ImmutableGraph graph, CharSequence basename, ProgressLogger pl ) throws IOException {
+	private BVGraph compressor() {
+		final BVGraph g = new BVGraph();
+		g.windowSize = windowSize;
+		g.maxRefCount = maxRefCount;
+		g.minIntervalLength = minIntervalLength;
+		g.zetaK = zetaK;
+		g.setFlags( flags );
+		g.successorGapStats = new long[ 32 ];
+		g.residualGapStats = new long[ 32 ];
+		return g;
+	}
+
+	/** Adds the statistics gathered by another graph object during compression to the statistics of this graph object.
+	 *
+	 * @param g a graph object that has been used to compress a part of a graph.
+	 */
+	private void addStats( final BVGraph g ) {
+		copiedArcs += g.copiedArcs;
+		intervalisedArcs += g.intervalisedArcs;
+		residualArcs += g.residualArcs;
+		totLinks += g.totLinks;
+		totRef += g.totRef;
+		totDist += g.totDist;
+		bitsForOutdegrees += g.bitsForOutdegrees;
+		bitsForReferences += g.bitsForReferences;
+		bitsForBlocks += g.bitsForBlocks;
+		bitsForResiduals += g.bitsForResiduals;
+		bitsForIntervals += g.bitsForIntervals;
+		for( int i = successorGapStats.length; i-- != 0; ) successorGapStats[ i ] += g.successorGapStats[ i ];
+		for( int i = residualGapStats.length; i-- != 0; ) residualGapStats[ i ] += g.residualGapStats[ i ];
+	}
+
+	/** Compresses the successor lists returned by a node iterator, using the compression parameters and flags of this graph object.
+	 *
+	 * <p>The reference window is initially empty, so the successor list of <code>from</code> and of the following nodes can only
+	 * refer to lists written by this call. After the successor list of each written node, its length in bits is written to the offset stream.
+	 *
+	 * @param nodeIterator a node iterator.
+	 * @param from the first node that will be returned by <code>nodeIterator</code>.
+	 * @param to the node at which compression stops (exclusive); compression stops anyway when <code>nodeIterator</code> is exhausted.
+	 * @param graphObs the graph-file output bit stream.
+	 * @param offsetObs the offset-file output bit stream.
+	 * @param pl a progress logger that will be updated for each written node, or <code>null</code>.
+	 * @return the last node returned by <code>nodeIterator</code>.
+	 */
+	private int compressNodes( final NodeIterator nodeIterator, final int from, final long to, final OutputBitStream graphObs, final OutputBitStream offsetObs, final ProgressLogger pl ) throws IOException {
 		// Used for differential compression
 		final OutputBitStream bitCount = new OutputBitStream( NullOutputStream.getInstance(), 0  );
-		int outd, currNode = -1, currIndex, j, bestIndex, cand;
-		long best, t, bitOffset = 0;
-		copiedArcs = 0;
-		intervalisedArcs = 0;
-		residualArcs = 0;
-		
-		OutputBitStream graphObs = new OutputBitStream( new FileOutputStream( basename + GRAPH_EXTENSION ), STD_BUFFER_SIZE );
-		OutputBitStream offsetObs = new OutputBitStream( new FileOutputStream( basename + OFFSETS_EXTENSION ), STD_BUFFER_SIZE );
-
-		if ( STATS ) {
-			offsetStats = new PrintWriter( new FileWriter( basename + ".offsetStats" ) );
-			referenceStats = new PrintWriter( new FileWriter( basename + ".referenceStats" ) );
-			outdegreeStats = new PrintWriter( new FileWriter( basename + ".outdegreeStats" ) );
-			blockCountStats = new PrintWriter( new FileWriter( basename + ".blockCountStats" ) );
-			blockStats = new PrintWriter( new FileWriter( basename + ".blockStats" ) );
-			intervalCountStats = new PrintWriter( new FileWriter( basename + ".intervalCountStats" ) );
-			leftStats = new PrintWriter( new FileWriter( basename + ".leftStats" ) );
-			lenStats = new PrintWriter( new FileWriter( basename + ".lenStats" ) );
-			residualCountStats = new PrintWriter( new FileWriter( basename + ".residualCountStats" ) );
-			residualStats = new PrintWriter( new FileWriter( basename + ".residualStats" ) );
-		}
+		int outd, currNode = from - 1, currIndex, j, bestIndex, cand;
+		long best, t, bitOffset;
 
 		final int cyclicBufferSize = windowSize + 1;
 		// Cyclic array of previous lists.
@@ -1746,37 +2406,21 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		int listLen[] = new int[ cyclicBufferSize ];
 		// For each list, the depth of its references.
 		int refCount[] = new int[ cyclicBufferSize ];
-		successorGapStats = new long[ 32 ];
-		residualGapStats = new long[ 32 ];
-		
-		long totRef = 0, totDist = 0, totLinks = 0;
 
-		// Note that it is fundamental that the time required to set up the iterator is not measured by the progress logger.
-		final NodeIterator nodeIterator = graph.nodeIterator();
-		nodeIterator.hasNext(); // Forces offline graphs to fill buffers.
-		
-		if ( pl != null ) {
-			pl.itemsName = "nodes";
-			try {
-				pl.expectedUpdates = graph.numNodes();
-			}
-			catch( UnsupportedOperationException ignore ) {}
-			pl.start( "Storing..." );
-		}
-		
 		// We iterate over the nodes of graph
-		while( nodeIterator.hasNext() ) {
+		while( currNode + 1 < to && nodeIterator.hasNext() ) {
 			// currNode is the currently examined node, of outdegree outd, with index currIndex (within the cyclic array)
 			int u = nodeIterator.nextInt();
 			if ( ++currNode != u ) throw new IllegalStateException( "Invalid node sequence: expected " + currNode + ", found " + u );
 			outd = nodeIterator.outdegree();// get the number of successors of currNode
 			currIndex = currNode % cyclicBufferSize;
 
-			// We write the current offset to the offset stream
-			writeOffset( offsetObs, graphObs.writtenBits() - bitOffset );
+			if ( outd > list[ currIndex ].length ) list[ currIndex ] = IntArrays.ensureCapacity( list[ currIndex ], outd );
+
+			// The successor list we are going to compress and write out
+			System.arraycopy( nodeIterator.successorArray(), 0, list[ currIndex ], 0, outd );
+			listLen[ currIndex ] = outd;
 
-			if ( STATS ) offsetStats.println( graphObs.writtenBits() - bitOffset );
-		
 			bitOffset = graphObs.writtenBits();
 
 			// We write the node outdegree
@@ -1784,12 +2428,6 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 
 			if ( STATS ) outdegreeStats.println( outd );
 
-			if ( outd > list[ currIndex ].length ) list[ currIndex ] = IntArrays.ensureCapacity( list[ currIndex ], outd );
-
-			// The successor list we are going to compress and write out
-			System.arraycopy( nodeIterator.successorArray(), 0, list[ currIndex ], 0, outd );
-			listLen[ currIndex ] = outd;
-			
 			if ( outd > 0 ) {
 				updateBins( currNode, list[ currIndex ], outd, successorGapStats );
 				try {
@@ -1822,6 +2460,10 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 				}
 			}
 
+			// We write the length of the successor list to the offset stream
+			writeOffset( offsetObs, graphObs.writtenBits() - bitOffset );
+
+			if ( STATS ) offsetStats.println( graphObs.writtenBits() - bitOffset );
 				
 			if ( pl != null && ( ( currNode + 1 ) & ( ( 1 << 20 ) - 1 ) ) == 0 ) LOGGER.info( new Formatter( Locale.ROOT ).format(
 					"bits/link: %.3f; bits/node: %.3f; avgref: %.3f; avgdist: %.3f.",
@@ -1834,22 +2476,301 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 			
 			if ( pl != null ) pl.update();
 		}
+
+		return currNode;
+	}
+
+	/** Compresses in memory a range of nodes of a graph using given compression parameters and flags,
+	 * and returns a graph providing random access to the compressed successor lists.
+	 *
+	 * <p>The reference window is empty at the start of the range, so successor lists never refer to lists outside the range.
+	 * The returned graph has as many nodes as the first node after the range, but only the successor lists of nodes in the range
+	 * can be accessed. Its compression statistics refer to the range.
+	 *
+	 * @param graph a graph supporting random access.
+	 * @param from the first node of the range (inclusive).
+	 * @param to the last node of the range (exclusive).
+	 * @param windowSize the window size (-1 for the default value).
+	 * @param maxRefCount the maximum reference count (-1 for the default value).
+	 * @param minIntervalLength the minimum interval length (-1 for the default value, {@link #NO_INTERVALS} to disable).
+	 * @param zetaK the parameter used for residual &zeta;-coding, if used (-1 for the default value).
+	 * @param flags the flag mask.
+	 * @return a graph providing random access to the compressed successor lists of the nodes in the range.
+	 * @see BVGraphTuner
+	 */
+	static BVGraph compressRange( final ImmutableGraph graph, final int from, final int to, final int windowSize, final int maxRefCount, final int minIntervalLength,
+			final int zetaK, final int flags ) throws IOException {
+		final BVGraph g = new BVGraph();
+		if ( windowSize != -1 ) g.windowSize = windowSize;
+		if ( maxRefCount != -1 ) g.maxRefCount = maxRefCount;
+		if ( minIntervalLength != -1 ) g.minIntervalLength = minIntervalLength;
+		if ( zetaK != -1 ) g.zetaK = zetaK;
+		g.setFlags( flags );
+		g.successorGapStats = new long[ 32 ];
+		g.residualGapStats = new long[ 32 ];
+		final FastByteArrayOutputStream graphStream = new FastByteArrayOutputStream(), offsetStream = new FastByteArrayOutputStream();
+		final OutputBitStream graphObs = new OutputBitStream( graphStream ), offsetObs = new OutputBitStream( offsetStream );
+		g.compressNodes( graph.nodeIterator( from ), from, to, graphObs, offsetObs, null );
+		graphObs.close();
+		offsetObs.close();
+
+		final long[] offset = new long[ to - from + 1 ];
+		final InputBitStream offsetIbs = new InputBitStream( offsetStream.array );
+		for( int i = 0; i < to - from; i++ ) offset[ i + 1 ] = offset[ i ] + g.readOffset( offsetIbs );
+
+		g.n = to;
+		g.m = g.totLinks;
+		g.isMemory = true;
+		g.graphMemory = graphStream.array;
+		g.offsetType = 1;
+		g.offsets = new AbstractLongBigList() {
+			public long getLong( final long index ) {
+				return offset[ (int)( index - from ) ];
+			}
+
+			public long size64() {
+				return to + 1;
+			}
+		};
+		g.outdegreeIbs = new InputBitStream( g.graphMemory );
+		return g;
+	}
+
+	/** Writes the given graph <code>graph</code> using a given base name, and the compression parameters and flags
+	 * of this graph object. Note that the latter is relevant only as far as parameters and flags are concerned; its
+	 * content is really irrelevant.
+	 *
+	 * @param graph a graph to be compressed.
+	 * @param basename a base name.
+	 * @param pl a progress logger to measure the state of compression, or <code>null</code> if no logging is required.
+	 * @throws IOException if some exception is raised while writing the graph.
+	 */
+	private void storeInternal( ImmutableGraph graph, CharSequence basename, ProgressLogger pl ) throws IOException {
+		copiedArcs = 0;
+		intervalisedArcs = 0;
+		residualArcs = 0;
+		totLinks = totRef = totDist = 0;
 		
-		if ( currNode + 1 != graph.numNodes() ) throw new IllegalStateException( "The graph claimed to have " + graph.numNodes() + " nodes, but the node iterator returned " + ( currNode + 1 ) );
+		OutputBitStream graphObs = new OutputBitStream( new FileOutputStream( basename + GRAPH_EXTENSION ), STD_BUFFER_SIZE );
+		OutputBitStream offsetObs = new OutputBitStream( new FileOutputStream( basename + OFFSETS_EXTENSION ), STD_BUFFER_SIZE );
+
+		if ( STATS ) {
+			offsetStats = new PrintWriter( new FileWriter( basename + ".offsetStats" ) );
+			referenceStats = new PrintWriter( new FileWriter( basename + ".referenceStats" ) );
+			outdegreeStats = new PrintWriter( new FileWriter( basename + ".outdegreeStats" ) );
+			blockCountStats = new PrintWriter( new FileWriter( basename + ".blockCountStats" ) );
+			blockStats = new PrintWriter( new FileWriter( basename + ".blockStats" ) );
+			intervalCountStats = new PrintWriter( new FileWriter( basename + ".intervalCountStats" ) );
+			leftStats = new PrintWriter( new FileWriter( basename + ".leftStats" ) );
+			lenStats = new PrintWriter( new FileWriter( basename + ".lenStats" ) );
+			residualCountStats = new PrintWriter( new FileWriter( basename + ".residualCountStats" ) );
+			residualStats = new PrintWriter( new FileWriter( basename + ".residualStats" ) );
+		}
+
+		successorGapStats = new long[ 32 ];
+		residualGapStats = new long[ 32 ];
+		
+		// Note that it is fundamental that the time required to set up the iterator is not measured by the progress logger.
+		final NodeIterator nodeIterator = graph.nodeIterator();
+		nodeIterator.hasNext(); // Forces offline graphs to fill buffers.
+		
+		if ( pl != null ) {
+			pl.itemsName = "nodes";
+			try {
+				pl.expectedUpdates = graph.numNodes();
+			}
+			catch( UnsupportedOperationException ignore ) {}
+			pl.start( "Storing..." );
+		}
 		
-		// We write the final offset to the offset stream.
-		writeOffset( offsetObs, graphObs.writtenBits() - bitOffset );
+		// We write the offset of the first node to the offset stream
+		writeOffset( offsetObs, 0 );
 
+		if ( STATS ) offsetStats.println( 0 );
+
+		final int currNode = compressNodes( nodeIterator, 0, Long.MAX_VALUE, graphObs, offsetObs, pl );
+		
+		if ( currNode + 1 != graph.numNodes() ) throw new IllegalStateException( "The graph claimed to have " + graph.numNodes() + " nodes, but the node iterator returned " + ( currNode + 1 ) );
+		
 		graphObs.close();
 		offsetObs.close();
 
 		if ( pl != null ) pl.done();
 		
+		storeProperties( basename, graph.numNodes(), graphObs.writtenBits() ); // At this point numNodes() *must* work (see ArcListASCIIGraph)
+
+		if ( STATS ) {
+			offsetStats.close();
+			referenceStats.close();
+			outdegreeStats.close();
+			blockCountStats.close();
+			blockStats.close();
+			intervalCountStats.close();
+			leftStats.close();
+			lenStats.close();
+			residualCountStats.close();
+			residualStats.close();
+		}
+	}
+
+	/** A range of consecutive nodes compressed independently into temporary files by {@link BVGraph#storeInternal(ImmutableGraph, CharSequence, int, ProgressLogger)}. */
+	private final static class Chunk implements Callable<Chunk> {
+		/** The graph object used to compress the chunk, which gathers the statistics of the chunk. */
+		private final BVGraph compressor;
+		/** A copy of the graph to be compressed. */
+		private final ImmutableGraph graph;
+		/** The first node of the chunk. */
+		private final int from;
+		/** The first node after the chunk. */
+		private final int to;
+		/** The temporary file containing the successor lists of the chunk. */
+		private File graphFile;
+		/** The temporary file containing the lengths in bits of the successor lists of the chunk. */
+		private File offsetsFile;
+		/** The number of bits written to {@link #graphFile}. */
+		private long graphBits;
+		/** The number of bits written to {@link #offsetsFile}. */
+		private long offsetBits;
+
+		private Chunk( final BVGraph compressor, final ImmutableGraph graph, final int from, final int to ) {
+			this.compressor = compressor;
+			this.graph = graph;
+			this.from = from;
+			this.to = to;
+		}
+
+		public Chunk call() throws IOException {
+			graphFile = File.createTempFile( BVGraph.class.getSimpleName(), GRAPH_EXTENSION );
+			offsetsFile = File.createTempFile( BVGraph.class.getSimpleName(), OFFSETS_EXTENSION );
+			graphFile.deleteOnExit();
+			offsetsFile.deleteOnExit();
+			final OutputBitStream graphObs = new OutputBitStream( new FileOutputStream( graphFile ), STD_BUFFER_SIZE );
+			final OutputBitStream offsetObs = new OutputBitStream( new FileOutputStream( offsetsFile ), STD_BUFFER_SIZE );
+			final int last = compressor.compressNodes( graph.nodeIterator( from ), from, to, graphObs, offsetObs, null );
+			if ( last + 1 != to ) throw new IllegalStateException( "The node iterator stopped at node " + ( last + 1 ) + ", but the chunk ends at node " + to );
+			graphBits = graphObs.writtenBits();
+			offsetBits = offsetObs.writtenBits();
+			graphObs.close();
+			offsetObs.close();
+			return this;
+		}
+
+		/** Deletes the temporary files of this chunk. */
+		private void delete() {
+			if ( graphFile != null ) graphFile.delete();
+			if ( offsetsFile != null ) offsetsFile.delete();
+		}
+	}
+
+	/** Appends to an output bit stream the bits contained in a file.
+	 *
+	 * @param file a file written by an {@link OutputBitStream}.
+	 * @param bits the number of bits written to <code>file</code>.
+	 * @param obs the output bit stream to which the bits will be appended, at its current (not necessarily byte-aligned) position.
+	 */
+	private static void append( final File file, final long bits, final OutputBitStream obs ) throws IOException {
+		final FileInputStream fis = new FileInputStream( file );
+		final byte[] buffer = new byte[ 64 * 1024 ];
+		for( long left = bits; left != 0; ) {
+			final int len = (int)Math.min( left, buffer.length * (long)Byte.SIZE );
+			if ( BinIO.loadBytes( fis, buffer, 0, ( len + Byte.SIZE - 1 ) / Byte.SIZE ) != ( len + Byte.SIZE - 1 ) / Byte.SIZE ) throw new IOException( "File " + file + " is shorter than expected" );
+			obs.write( buffer, len );
+			left -= len;
+		}
+		fis.close();
+	}
+
+	/** Writes the given graph <code>graph</code> using a given base name, and the compression parameters and flags
+	 * of this graph object, compressing in parallel chunks of consecutive nodes.
+	 *
+	 * @param graph a graph supporting random access to be compressed.
+	 * @param basename a base name.
+	 * @param threads the number of threads.
+	 * @param pl a progress logger to measure the state of compression, or <code>null</code> if no logging is required.
+	 * @throws IOException if some exception is raised while writing the graph.
+	 * @see #store(ImmutableGraph, CharSequence, int, int, int, int, int, int, ProgressLogger)
+	 */
+	private void storeInternal( final ImmutableGraph graph, final CharSequence basename, final int threads, final ProgressLogger pl ) throws IOException {
+		final int n = graph.numNodes();
+		final int chunkSize = (int)Math.max( MIN_CHUNK_SIZE, ( n + CHUNKS_PER_THREAD * threads - 1L ) / ( CHUNKS_PER_THREAD * threads ) );
+		final int chunks = (int)( ( n + chunkSize - 1L ) / chunkSize );
+		copiedArcs = 0;
+		intervalisedArcs = 0;
+		residualArcs = 0;
+		totLinks = totRef = totDist = 0;
+		successorGapStats = new long[ 32 ];
+		residualGapStats = new long[ 32 ];
+		LOGGER.info( "Compressing " + chunks + " chunks of " + chunkSize + " nodes using " + threads + " threads" );
+
+		final ExecutorService executor = Executors.newFixedThreadPool( threads );
+		final ArrayList<Future<Chunk>> futures = new ArrayList<Future<Chunk>>();
+		final OutputBitStream graphObs = new OutputBitStream( new FileOutputStream( basename + GRAPH_EXTENSION ), STD_BUFFER_SIZE );
+		final OutputBitStream offsetObs = new OutputBitStream( new FileOutputStream( basename + OFFSETS_EXTENSION ), STD_BUFFER_SIZE );
+
+		if ( pl != null ) {
+			pl.itemsName = "nodes";
+			pl.expectedUpdates = n;
+			pl.start( "Storing..." );
+		}
+
+		try {
+			for( int i = 0; i < chunks; i++ ) futures.add( executor.submit( new Chunk( compressor(), graph.copy(), i * chunkSize, (int)Math.min( n, ( i + 1L ) * chunkSize ) ) ) );
+			executor.shutdown();
+
+			// We write the offset of the first node to the offset stream
+			writeOffset( offsetObs, 0 );
+
+			// Chunks are stitched in order as soon as they are available
+			for( Future<Chunk> future : futures ) {
+				final Chunk chunk;
+				try {
+					chunk = future.get();
+				}
+				catch( ExecutionException e ) {
+					final Throwable cause = e.getCause();
+					if ( cause instanceof IOException ) throw (IOException)cause;
+					if ( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+					throw new RuntimeException( cause );
+				}
+				append( chunk.graphFile, chunk.graphBits, graphObs );
+				append( chunk.offsetsFile, chunk.offsetBits, offsetObs );
+				chunk.delete();
+				addStats( chunk.compressor );
+				if ( pl != null ) pl.update( chunk.to - chunk.from );
+			}
+		}
+		catch( InterruptedException e ) {
+			throw new IOException( "Interrupted while compressing chunks" );
+		}
+		finally {
+			executor.shutdownNow();
+			for( Future<Chunk> future : futures ) if ( future.isDone() && ! future.isCancelled() ) {
+				try {
+					future.get().delete();
+				}
+				catch( Exception ignore ) {}
+			}
+		}
+		
+		graphObs.close();
+		offsetObs.close();
+
+		if ( pl != null ) pl.done();
+
+		storeProperties( basename, n, graphObs.writtenBits() );
+	}
+
+	/** Writes the property file of a graph that has been just compressed using this graph object.
+	 *
+	 * @param basename a base name.
+	 * @param n the number of nodes of the graph.
+	 * @param writtenBits the number of bits written to the graph file.
+	 */
+	private void storeProperties( final CharSequence basename, final int n, final long writtenBits ) throws IOException {
 		final DecimalFormat format = new java.text.DecimalFormat( "0.###" );
 		
 		// Finally, we save all data related to this graph in a property file.
 		final Properties properties = new Properties();
-		final int n = graph.numNodes(); // At this point this *must* work (see ArcListASCIIGraph)
 		properties.setProperty( "nodes", String.valueOf( n ) );
 		properties.setProperty( "arcs", String.valueOf( totLinks ) );
 		properties.setProperty( "windowsize", String.valueOf( windowSize ) );
@@ -1862,9 +2783,9 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		properties.setProperty( "copiedarcs", String.valueOf( copiedArcs ) );
 		properties.setProperty( "intervalisedarcs", String.valueOf( intervalisedArcs ) );
 		properties.setProperty( "residualarcs", String.valueOf( residualArcs ) );
-		properties.setProperty( "bitsperlink", format.format( (double)graphObs.writtenBits() / totLinks ) );
-		properties.setProperty( "compratio", format.format( graphObs.writtenBits() * Math.log( 2 ) / ( stirling( (double)n * n ) - stirling( totLinks ) - stirling( (double)n * n - totLinks ) ) ) );
-		properties.setProperty( "bitspernode", format.format( (double)graphObs.writtenBits() / n ) );
+		properties.setProperty( "bitsperlink", format.format( (double)writtenBits / totLinks ) );
+		properties.setProperty( "compratio", format.format( writtenBits * Math.log( 2 ) / ( stirling( (double)n * n ) - stirling( totLinks ) - stirling( (double)n * n - totLinks ) ) ) );
+		properties.setProperty( "bitspernode", format.format( (double)writtenBits / n ) );
 		properties.setProperty( "avgbitsforoutdegrees", format.format( (double)bitsForOutdegrees / n ) );
 		properties.setProperty( "avgbitsforreferences", format.format( (double)bitsForReferences / n ) );
 		properties.setProperty( "avgbitsforblocks", format.format( (double)bitsForBlocks / n ) );
@@ -1923,19 +2844,6 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		properties.store( propertyFile, "BVGraph properties" );
 
 		propertyFile.close();
-
-		if ( STATS ) {
-			offsetStats.close();
-			referenceStats.close();
-			outdegreeStats.close();
-			blockCountStats.close();
-			blockStats.close();
-			intervalCountStats.close();
-			leftStats.close();
-			lenStats.close();
-			residualCountStats.close();
-			residualStats.close();
-		}
 	}
 
 	private double stirling( double n ) {
@@ -1983,7 +2891,10 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 						new Switch( "once", '1', "once", "Use the read-once load method to read a graph from standard input." ),
 						new Switch( "offsets", 'O', "offsets", "Generates offsets for the source graph." ),
 						new Switch( "list", 'L', "list", "Precomputes an Elias-Fano list of offsets for the source graph." ),
+						new Switch( "flatOffsets", 'F', "flat-offsets", "Stores the offsets of the source graph in a flat file of longs that will be memory-mapped by loadMapped()." ),
 						new Switch( "degrees", 'd', "degrees", "Stores the outdegrees of all nodes using &gamma; coding." ),
+						new Switch( "cumulativeDegrees", 'D', "cumulative-degrees", "Stores an Elias-Fano list of the cumulative outdegrees of the destination graph, if specified, or of the source graph." ),
+						new FlaggedOption( "threads", JSAP.INTSIZE_PARSER, "1", JSAP.NOT_REQUIRED, 'T', "threads", "The number of threads used for compression (0 for the number of available processors); if it is not one, the source graph is loaded for random access, unless --offline, --once or --spec are specified." ),
 						new UnflaggedOption( "sourceBasename", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The basename of the source graph, or a source spec if --spec was given; it is immaterial when --once is specified." ),
 						new UnflaggedOption( "destBasename", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY, "The basename of the destination graph; if omitted, no recompression is performed. This is useful in conjunction with --offsets." ),
 					}		
@@ -2011,7 +2922,10 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 		final boolean spec = jsapResult.getBoolean( "spec" );
 		final boolean writeOffsets = jsapResult.getBoolean( "offsets" );
 		final boolean list = jsapResult.getBoolean( "list" );
+		final boolean flatOffsets = jsapResult.getBoolean( "flatOffsets" );
 		final boolean degrees = jsapResult.getBoolean( "degrees" );
+		final boolean cumulativeDegrees = jsapResult.getBoolean( "cumulativeDegrees" );
+		final int threads = jsapResult.getInt( "threads" );
 		graphClass = jsapResult.getClass( "graphClass" );
 		source = jsapResult.getString( "sourceBasename" );
 		dest = jsapResult.getString( "destBasename" ); 
@@ -2025,17 +2939,18 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 				System.exit( 1 );
 			}
 			if ( once ) graph = (ImmutableGraph)graphClass.getMethod( LoadMethod.ONCE.toMethod(), InputStream.class ).invoke( null, System.in );
-			else if ( list || degrees || offline ) graph = (ImmutableGraph)graphClass.getMethod( LoadMethod.OFFLINE.toMethod(), CharSequence.class ).invoke( null, source );
-			else graph = (ImmutableGraph)graphClass.getMethod( LoadMethod.SEQUENTIAL.toMethod(), CharSequence.class, ProgressLogger.class ).invoke( null, source, pl );
+			else if ( list || flatOffsets || degrees || cumulativeDegrees || offline ) graph = (ImmutableGraph)graphClass.getMethod( LoadMethod.OFFLINE.toMethod(), CharSequence.class ).invoke( null, source );
+			else graph = (ImmutableGraph)graphClass.getMethod( ( threads != 1 ? LoadMethod.STANDARD : LoadMethod.SEQUENTIAL ).toMethod(), CharSequence.class, ProgressLogger.class ).invoke( null, source, pl );
 		}
 		else {
-			if ( !spec ) graph = once ? ImmutableGraph.loadOnce( System.in ) : offline ? ImmutableGraph.loadOffline( source, pl ) : ImmutableGraph.loadSequential( source, pl );
+			if ( !spec ) graph = once ? ImmutableGraph.loadOnce( System.in ) : offline ? ImmutableGraph.loadOffline( source, pl ) : threads != 1 ? ImmutableGraph.load( source, pl ) : ImmutableGraph.loadSequential( source, pl );
 			else graph = ObjectParser.fromSpec( source, ImmutableGraph.class, GraphClassParser.PACKAGE );
 		}
 
 		if ( dest != null )	{
-			if ( writeOffsets || list || degrees ) throw new IllegalArgumentException( "You cannot specify a destination graph with these options" );
-			BVGraph.store( graph, dest, windowSize, maxRefCount, minIntervalLength, zetaK, flags, pl );
+			if ( writeOffsets || list || flatOffsets || degrees ) throw new IllegalArgumentException( "You cannot specify a destination graph with these options" );
+			BVGraph.store( graph, dest, windowSize, maxRefCount, minIntervalLength, zetaK, flags, threads, pl );
+			if ( cumulativeDegrees ) storeCumulativeOutdegrees( BVGraph.loadOffline( dest ), dest );
 		}
 		else {
 			if ( ! ( graph instanceof BVGraph ) ) throw new IllegalArgumentException( "The source graph is not a BVGraph" );
@@ -2064,6 +2979,8 @@ public class BVGraph extends ImmutableGraph implements CompressionFlags {
 				
 				outdegrees.close();
 			}
+			if ( flatOffsets ) storeOffsetsLongs( bvGraph );
+			if ( cumulativeDegrees ) storeCumulativeOutdegrees( graph, graph.basename() );
 		}
 	}
 }
@@ -0,0 +1,342 @@
+package it.unimi.dsi.webgraph;
+
+import it.unimi.dsi.Util;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.logging.ProgressLogger;
+import it.unimi.dsi.util.XorShiftStarRandom;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+/** Chooses the compression parameters of a {@link BVGraph} by compressing samples of a graph.
+ *
+ * <p>The space occupied by a {@link BVGraph} and the speed of random access depend on the window size, on the maximum
+ * reference count, on the minimum interval length and on the coding of residuals, and the best choice depends on the graph.
+ * This class compresses in memory a number of samples of consecutive nodes, chosen at random, using each set
+ * of parameters in a list of {@linkplain Candidate candidates}, and measures the number of bits per link and the average time
+ * required to retrieve the successor list of a random node of the samples using {@link BVGraph#successors(int, int[])}.
+ * Samples are compressed in parallel; the access times of each candidate are measured by a single thread, taking the minimum
+ * over a few repetitions, so they can be meaningfully compared with one another. To reduce the bias due to just-in-time compilation,
+ * all candidates are first evaluated (without recording the results) on a single sample.
+ *
+ * <p>{@link #best(Candidate[], double)} returns the most compact candidate satisfying a bound on the access time.
+ * The command-line tool prints the evaluated candidates, marking those that are Pareto optimal
+ * (i.e., no other candidate is both more compact and faster), and optionally stores the graph using the best candidate.
+ *
+ * <p>Samples start with an empty reference window, so on a sample of <var>s</var> nodes the number of bits per link
+ * is slightly overestimated for large window sizes (the first <var>w</var> lists cannot use all references). Samples should thus be
+ * much larger than the largest window size.
+ */
+
+public class BVGraphTuner {
+	private static final Logger LOGGER = Util.getLogger( BVGraphTuner.class );
+
+	/** The default number of samples. */
+	public final static int DEFAULT_SAMPLES = 16;
+	/** The default number of nodes in a sample. */
+	public final static int DEFAULT_SAMPLE_SIZE = 10000;
+	/** The number of successor lists retrieved from each sample to measure access time. */
+	private final static int QUERIES = 4096;
+	/** The number of timed repetitions of the queries. */
+	private final static int REPETITIONS = 5;
+
+	private BVGraphTuner() {}
+
+	/** A set of compression parameters, and the results of its evaluation. */
+	public final static class Candidate {
+		/** The window size. */
+		public final int windowSize;
+		/** The maximum reference count. */
+		public final int maxRefCount;
+		/** The minimum interval length. */
+		public final int minIntervalLength;
+		/** The parameter for &zeta; coding. */
+		public final int zetaK;
+		/** The flag mask. */
+		public final int flags;
+		/** The number of bits per link on the samples, or {@link Double#NaN} if this candidate has not been evaluated. */
+		public double bitsPerLink = Double.NaN;
+		/** The average time in nanoseconds required to retrieve a successor list, or {@link Double#NaN} if this candidate has not been evaluated. */
+		public double accessTime = Double.NaN;
+
+		/** Creates a new candidate.
+		 *
+		 * @param windowSize the window size.
+		 * @param maxRefCount the maximum reference count.
+		 * @param minIntervalLength the minimum interval length.
+		 * @param zetaK the parameter for &zeta; coding.
+		 * @param flags the flag mask.
+		 */
+		public Candidate( final int windowSize, final int maxRefCount, final int minIntervalLength, final int zetaK, final int flags ) {
+			this.windowSize = windowSize;
+			this.maxRefCount = maxRefCount;
+			this.minIntervalLength = minIntervalLength;
+			this.zetaK = zetaK;
+			this.flags = flags;
+		}
+
+		/** Returns whether this candidate is both more compact and faster than another one (and strictly better in one respect).
+		 *
+		 * @param c an evaluated candidate.
+		 * @return true if this candidate dominates <code>c</code>.
+		 */
+		public boolean dominates( final Candidate c ) {
+			return bitsPerLink <= c.bitsPerLink && accessTime <= c.accessTime && ( bitsPerLink < c.bitsPerLink || accessTime < c.accessTime );
+		}
+
+		/** Stores a graph using the parameters of this candidate.
+		 *
+		 * @param graph a graph.
+		 * @param basename the basename of the stored graph.
+		 * @param threads the number of threads used for compression (see {@link BVGraph#store(ImmutableGraph, CharSequence, int, int, int, int, int, int, ProgressLogger)}).
+		 * @param pl a progress logger, or <code>null</code>.
+		 */
+		public void store( final ImmutableGraph graph, final CharSequence basename, final int threads, final ProgressLogger pl ) throws IOException {
+			BVGraph.store( graph, basename, windowSize, maxRefCount, minIntervalLength, zetaK, flags, threads, pl );
+		}
+
+		public String toString() {
+			final String coding = CompressionFlags.CODING_NAME[ flags >>> 8 & 0xF ];
+			return new Formatter( Locale.ROOT ).format( "w=%d m=%d i=%d residuals=%s%s: %.3f bits/link, %.1f ns/list",
+					Integer.valueOf( windowSize ), Integer.valueOf( maxRefCount ), Integer.valueOf( minIntervalLength ),
+					( flags >>> 8 & 0xF ) == 0 ? "DEFAULT" : coding, usesZetaK( flags ) ? " k=" + zetaK : "",
+					Double.valueOf( bitsPerLink ), Double.valueOf( accessTime ) ).toString();
+		}
+	}
+
+	/** Returns whether a flag mask specifies a residual coding using the parameter <var>k</var>.
+	 *
+	 * @param flags a flag mask.
+	 * @return true if residuals will be coded using &zeta; or Golomb coding.
+	 */
+	private static boolean usesZetaK( final int flags ) {
+		final int coding = flags >>> 8 & 0xF;
+		return coding == 0 || coding == CompressionFlags.ZETA || coding == CompressionFlags.GOLOMB;
+	}
+
+	/** Returns all combinations of given compression parameters.
+	 *
+	 * <p>The values of <var>k</var> are combined only with flag masks whose residual coding uses it; other flag
+	 * masks are combined just with the first value.
+	 *
+	 * @param windowSizes a list of window sizes.
+	 * @param maxRefCounts a list of maximum reference counts.
+	 * @param minIntervalLengths a list of minimum interval lengths.
+	 * @param zetaKs a list of parameters for &zeta; coding.
+	 * @param flags a list of flag masks.
+	 * @return the candidates obtained by combining the given parameters.
+	 */
+	public static Candidate[] candidates( final int[] windowSizes, final int[] maxRefCounts, final int[] minIntervalLengths, final int[] zetaKs, final int[] flags ) {
+		final ArrayList<Candidate> candidates = new ArrayList<Candidate>();
+		for( int f : flags )
+			for( int w : windowSizes )
+				for( int m : maxRefCounts )
+					for( int i : minIntervalLengths )
+						for( int k = 0; k < ( usesZetaK( f ) ? zetaKs.length : 1 ); k++ ) candidates.add( new Candidate( w, m, i, zetaKs[ k ], f ) );
+		return candidates.toArray( new Candidate[ candidates.size() ] );
+	}
+
+	/** Compresses a sample of a graph using the parameters of a candidate. */
+	private final static class Sample implements Callable<BVGraph> {
+		private final ImmutableGraph graph;
+		private final int from;
+		private final int to;
+		private final Candidate candidate;
+
+		private Sample( final ImmutableGraph graph, final int from, final int to, final Candidate candidate ) {
+			this.graph = graph;
+			this.from = from;
+			this.to = to;
+			this.candidate = candidate;
+		}
+
+		public BVGraph call() throws IOException {
+			return BVGraph.compressRange( graph, from, to, candidate.windowSize, candidate.maxRefCount, candidate.minIntervalLength, candidate.zetaK, candidate.flags );
+		}
+	}
+
+	/** Evaluates candidates on samples of a graph, setting their {@linkplain Candidate#bitsPerLink number of bits per link}
+	 * and {@linkplain Candidate#accessTime access time}.
+	 *
+	 * @param graph a graph supporting random access.
+	 * @param candidates the candidates to be evaluated.
+	 * @param samples the number of samples.
+	 * @param sampleSize the number of nodes in a sample.
+	 * @param threads the number of threads used to compress samples (0 for the number of available processors).
+	 * @param seed the seed used to choose the samples and the nodes whose successor lists are retrieved.
+	 * @param pl a progress logger, or <code>null</code>.
+	 */
+	public static void evaluate( final ImmutableGraph graph, final Candidate[] candidates, final int samples, int sampleSize, int threads, final long seed, final ProgressLogger pl ) throws IOException {
+		if ( ! graph.randomAccess() ) throw new IllegalArgumentException( "The graph must support random access" );
+		if ( samples <= 0 ) throw new IllegalArgumentException( "Invalid number of samples: " + samples );
+		if ( threads < 0 ) throw new IllegalArgumentException( "Invalid number of threads: " + threads );
+		if ( threads == 0 ) threads = Runtime.getRuntime().availableProcessors();
+		final int n = graph.numNodes();
+		sampleSize = Math.min( sampleSize, n );
+
+		final XorShiftStarRandom random = new XorShiftStarRandom( seed );
+		final int[] from = new int[ samples ];
+		final int[][] query = new int[ samples ][ QUERIES ];
+		for( int s = 0; s < samples; s++ ) {
+			from[ s ] = random.nextInt( n - sampleSize + 1 );
+			for( int q = 0; q < QUERIES; q++ ) query[ s ][ q ] = from[ s ] + random.nextInt( sampleSize );
+		}
+		LOGGER.info( "Evaluating " + candidates.length + " candidates on " + samples + " samples of " + sampleSize + " nodes using " + threads + " threads" );
+
+		if ( pl != null ) {
+			pl.itemsName = "candidates";
+			pl.expectedUpdates = candidates.length;
+			pl.start( "Evaluating candidates..." );
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool( threads );
+		try {
+			int[] buffer = IntArrays.EMPTY_ARRAY;
+			final BVGraph[] compressed = new BVGraph[ samples ];
+			// In the first round, each candidate is evaluated on the first sample only, to warm up the decoding code of all candidates
+			for( int round = 0; round < 2; round++ ) for( Candidate candidate : candidates ) {
+				final int used = round == 0 ? 1 : samples;
+				final ArrayList<Future<BVGraph>> futures = new ArrayList<Future<BVGraph>>();
+				for( int s = 0; s < used; s++ ) futures.add( executor.submit( new Sample( graph.copy(), from[ s ], from[ s ] + sampleSize, candidate ) ) );
+
+				long bits = 0, arcs = 0;
+				for( int s = 0; s < used; s++ ) {
+					try {
+						compressed[ s ] = futures.get( s ).get();
+					}
+					catch( ExecutionException e ) {
+						final Throwable cause = e.getCause();
+						if ( cause instanceof IOException ) throw (IOException)cause;
+						if ( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+						throw new RuntimeException( cause );
+					}
+					bits += compressed[ s ].offsets.getLong( from[ s ] + sampleSize );
+					arcs += compressed[ s ].numArcs();
+				}
+
+				// An untimed pass, which also sizes the buffer
+				for( int s = 0; s < used; s++ )
+					for( int x : query[ s ] ) compressed[ s ].successors( x, buffer = IntArrays.grow( buffer, compressed[ s ].outdegree( x ) ) );
+
+				long best = Long.MAX_VALUE;
+				for( int r = 0; r < REPETITIONS; r++ ) {
+					final long start = System.nanoTime();
+					for( int s = 0; s < used; s++ ) {
+						final BVGraph g = compressed[ s ];
+						for( int x : query[ s ] ) g.successors( x, buffer );
+					}
+					best = Math.min( best, System.nanoTime() - start );
+				}
+				Arrays.fill( compressed, null );
+				if ( round == 0 ) continue;
+
+				candidate.bitsPerLink = arcs == 0 ? 0 : (double)bits / arcs;
+				candidate.accessTime = (double)best / ( samples * (long)QUERIES );
+				LOGGER.debug( candidate );
+				if ( pl != null ) pl.update();
+			}
+		}
+		catch( InterruptedException e ) {
+			throw new IOException( "Interrupted while compressing samples" );
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		if ( pl != null ) pl.done();
+	}
+
+	/** Returns the most compact evaluated candidate whose access time does not exceed a given bound.
+	 *
+	 * @param candidates evaluated candidates.
+	 * @param maxAccessTime the maximum access time in nanoseconds ({@link Double#POSITIVE_INFINITY} for no bound).
+	 * @return the candidate with the smallest number of bits per link among those whose access time is at most <code>maxAccessTime</code>
+	 * (ties are broken by access time), or the fastest candidate if no candidate satisfies the bound.
+	 */
+	public static Candidate best( final Candidate[] candidates, final double maxAccessTime ) {
+		if ( candidates.length == 0 ) throw new IllegalArgumentException( "No candidates" );
+		Candidate best = null, fastest = candidates[ 0 ];
+		for( Candidate c : candidates ) {
+			if ( c.accessTime < fastest.accessTime ) fastest = c;
+			if ( c.accessTime <= maxAccessTime && ( best == null || c.bitsPerLink < best.bitsPerLink || c.bitsPerLink == best.bitsPerLink && c.accessTime < best.accessTime ) ) best = c;
+		}
+		return best != null ? best : fastest;
+	}
+
+	public static void main( String args[] ) throws IllegalArgumentException, SecurityException, IOException, JSAPException {
+		SimpleJSAP jsap = new SimpleJSAP( BVGraphTuner.class.getName(), "Evaluates sets of compression parameters for a BVGraph on random samples of a graph, printing the number of bits per link and the average time required to retrieve a successor list for each set, and possibly compresses the graph using the most compact set satisfying a bound on the access time.",
+				new Parameter[] {
+						new FlaggedOption( "windowSizes", JSAP.INTEGER_PARSER, "1,3,7,15", JSAP.NOT_REQUIRED, 'w', "window-sizes", "A comma-separated list of reference window sizes." ).setList( true ).setListSeparator( ',' ),
+						new FlaggedOption( "maxRefCounts", JSAP.INTEGER_PARSER, "0,1,3,-1", JSAP.NOT_REQUIRED, 'm', "max-ref-counts", "A comma-separated list of maximum numbers of backward references (-1 for ∞)." ).setList( true ).setListSeparator( ',' ),
+						new FlaggedOption( "minIntervalLengths", JSAP.INTEGER_PARSER, String.valueOf( BVGraph.DEFAULT_MIN_INTERVAL_LENGTH ), JSAP.NOT_REQUIRED, 'i', "min-interval-lengths", "A comma-separated list of minimum lengths of an interval (0 to disable)." ).setList( true ).setListSeparator( ',' ),
+						new FlaggedOption( "zetaKs", JSAP.INTEGER_PARSER, "2,3,4", JSAP.NOT_REQUIRED, 'k', "zeta-ks", "A comma-separated list of k parameters for zeta-k codes." ).setList( true ).setListSeparator( ',' ),
+						new FlaggedOption( "residuals", JSAP.STRING_PARSER, "ZETA,GROUP_VARINT", JSAP.NOT_REQUIRED, 'r', "residuals", "A comma-separated list of residual codings (e.g., ZETA, GAMMA, GROUP_VARINT)." ).setList( true ).setListSeparator( ',' ),
+						new FlaggedOption( "samples", JSAP.INTSIZE_PARSER, String.valueOf( DEFAULT_SAMPLES ), JSAP.NOT_REQUIRED, 's', "samples", "The number of samples." ),
+						new FlaggedOption( "sampleSize", JSAP.INTSIZE_PARSER, String.valueOf( DEFAULT_SAMPLE_SIZE ), JSAP.NOT_REQUIRED, 'S', "sample-size", "The number of nodes in a sample." ),
+						new FlaggedOption( "maxAccessTime", JSAP.DOUBLE_PARSER, Double.toString( Double.POSITIVE_INFINITY ), JSAP.NOT_REQUIRED, 'a', "max-access-time", "The maximum average time in nanoseconds required to retrieve a successor list." ),
+						new FlaggedOption( "seed", JSAP.LONG_PARSER, "0", JSAP.NOT_REQUIRED, 'e', "seed", "The seed used to choose samples and queries." ),
+						new FlaggedOption( "threads", JSAP.INTSIZE_PARSER, "0", JSAP.NOT_REQUIRED, 'T', "threads", "The number of threads used for compression (0 for the number of available processors)." ),
+						new FlaggedOption( "logInterval", JSAP.LONG_PARSER, Long.toString( ProgressLogger.DEFAULT_LOG_INTERVAL ), JSAP.NOT_REQUIRED, 'l', "log-interval", "The minimum time interval between activity logs in milliseconds." ),
+						new UnflaggedOption( "sourceBasename", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The basename of the source graph." ),
+						new UnflaggedOption( "destBasename", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY, "The basename of the destination graph, which will be compressed using the best candidate; if omitted, the best candidate is just printed." ),
+					}
+				);
+
+		JSAPResult jsapResult = jsap.parse( args );
+		if ( jsap.messagePrinted() ) System.exit( 1 );
+
+		final String[] residuals = jsapResult.getStringArray( "residuals" );
+		final int[] flags = new int[ residuals.length ];
+		for( int i = 0; i < residuals.length; i++ ) {
+			try {
+				flags[ i ] = BVGraph.class.getField( "RESIDUALS_" + residuals[ i ].trim() ).getInt( BVGraph.class );
+			}
+			catch ( Exception notFound ) {
+				throw new JSAPException( "Residual coding " + residuals[ i ] + " unknown." );
+			}
+		}
+		final int[] maxRefCounts = jsapResult.getIntArray( "maxRefCounts" );
+		for( int i = 0; i < maxRefCounts.length; i++ ) if ( maxRefCounts[ i ] == -1 ) maxRefCounts[ i ] = Integer.MAX_VALUE;
+		final int threads = jsapResult.getInt( "threads" );
+
+		final ProgressLogger pl = new ProgressLogger( LOGGER, jsapResult.getLong( "logInterval" ) );
+		final ImmutableGraph graph = ImmutableGraph.load( jsapResult.getString( "sourceBasename" ), pl );
+		final Candidate[] candidates = candidates( jsapResult.getIntArray( "windowSizes" ), maxRefCounts, jsapResult.getIntArray( "minIntervalLengths" ), jsapResult.getIntArray( "zetaKs" ), flags );
+		evaluate( graph, candidates, jsapResult.getInt( "samples" ), jsapResult.getInt( "sampleSize" ), threads, jsapResult.getLong( "seed" ), pl );
+
+		final Candidate[] sorted = candidates.clone();
+		Arrays.sort( sorted, new Comparator<Candidate>() {
+			public int compare( final Candidate c0, final Candidate c1 ) {
+				return Double.compare( c0.bitsPerLink, c1.bitsPerLink );
+			}
+		} );
+		for( Candidate c : sorted ) {
+			boolean dominated = false;
+			for( Candidate d : candidates ) dominated |= d.dominates( c );
+			System.out.println( ( dominated ? "  " : "* " ) + c );
+		}
+
+		final Candidate best = best( candidates, jsapResult.getDouble( "maxAccessTime" ) );
+		System.out.println( "Best: " + best );
+		if ( jsapResult.userSpecified( "destBasename" ) ) best.store( graph, jsapResult.getString( "destBasename" ), threads, pl );
+	}
+}
@@ -45,6 +45,10 @@ public interface CompressionFlags {
 	/** Variable-length nibble coding (see {@link it.unimi.dsi.io.OutputBitStream#writeNibble(int)}). */
 	public static final int NIBBLE = 7;
 
-	public static final String[] CODING_NAME = { "DEFAULT", "DELTA", "GAMMA", "GOLOMB", "SKEWED_GOLOMB", "UNARY", "ZETA", "NIBBLE" };
+	/** Group varint coding: values are written in groups of four, each group being preceded by a byte containing four
+	 * two-bit tags that specify the length of each value (from one to four bytes). It can be used only for residuals. */
+	public static final int GROUP_VARINT = 8;
+
+	public static final String[] CODING_NAME = { "DEFAULT", "DELTA", "GAMMA", "GOLOMB", "SKEWED_GOLOMB", "UNARY", "ZETA", "NIBBLE", "GROUP_VARINT" };
 
 }
@@ -0,0 +1,142 @@
+package it.unimi.dsi.webgraph;
+
+import it.unimi.dsi.fastutil.longs.AbstractLongBigList;
+import it.unimi.dsi.io.InputBitStream;
+
+import java.io.IOException;
+
+/** A lock-free variant of {@link SemiExternalOffsetList}.
+ *
+ * <p>{@link SemiExternalOffsetList} decodes offsets using a single {@link InputBitStream}, so {@link SemiExternalOffsetList#getLong(long)}
+ * must be synchronised, and concurrent lookups are serialised. This class keeps the compressed offsets in a byte array,
+ * and decodes them directly from the array, keeping the decoding state in local variables: {@link #getLong(long)} is
+ * thus thread safe without any locking, and lookups from different threads proceed in parallel.
+ *
+ * <p>Entry points are computed with a certain <em>step</em> exactly as in {@link SemiExternalOffsetList}. &gamma; codes
+ * are decoded from a 64-bit window that is refilled only when the next code does not fit in it.
+ */
+public class ConcurrentSemiExternalOffsetList extends AbstractLongBigList {
+	/** The offsets in compressed form (&gamma;-encoded deltas). */
+	private final byte[] offsetRawData;
+	/** Position in {@link #offsetRawData} for each random access entry point (one each {@link #offsetStep} elements). */
+	private final long[] position;
+	/** An array parallel to {@link #position} recording the value of the offset for each random access entry point. */
+	private final long[] startValue;
+	/** Maximum number of &gamma; codes that will be decoded to access an offset. */
+	private final int offsetStep;
+	/** The number of offsets. */
+	private final long numOffsets;
+
+	/** Creates a new lock-free semi-external list.
+	 *
+	 * @param offsetRawData the offsets in compressed form (&gamma;-encoded deltas), e.g., the content of an offset file.
+	 * @param offsetStep the step used to build random-access entry points.
+	 * @param numOffsets the overall number of offsets (i.e., the number of terms).
+	 */
+	public ConcurrentSemiExternalOffsetList( final byte[] offsetRawData, final int offsetStep, final long numOffsets ) throws IOException {
+		if ( offsetStep <= 0 ) throw new IllegalArgumentException( "Invalid offset step: " + offsetStep );
+		final int slots = (int)( ( numOffsets + offsetStep - 1 ) / offsetStep );
+		this.offsetRawData = offsetRawData;
+		this.position = new long[ slots ];
+		this.startValue = new long[ slots ];
+		this.offsetStep = offsetStep;
+		this.numOffsets = numOffsets;
+		prepareRandomAccess( numOffsets );
+	}
+
+	/** Scans {@link #offsetRawData} and fills the necessary data in {@link #position} and {@link #startValue}.
+	 *
+	 * @param numOffsets the number of offsets.
+	 */
+	private void prepareRandomAccess( final long numOffsets ) throws IOException {
+		final InputBitStream ibs = new InputBitStream( offsetRawData );
+		long offset = 0;
+		int k = 0;
+		int slotIndex = 0;
+
+		for ( long i = numOffsets; i-- != 0; ) {
+			offset += ibs.readLongGamma();
+
+			if ( k-- == 0 ) {
+				k = offsetStep - 1;
+
+				startValue[ slotIndex ] = offset;
+				position[ slotIndex ] = ibs.readBits();
+				slotIndex++;
+			}
+		}
+		ibs.close();
+	}
+
+	/** Returns the 64 bits of {@link #offsetRawData} starting at a given bit position, padding with zeroes past the end of the array.
+	 *
+	 * @param pos a bit position.
+	 * @return the 64 bits starting at <code>pos</code>, the first one being the most significant.
+	 */
+	private long window( final long pos ) {
+		final byte[] a = offsetRawData;
+		final int start = (int)( pos >>> 3 ), shift = (int)( pos & 7 );
+		long w = 0;
+		for( int i = start; i < start + 8; i++ ) w = w << 8 | ( i < a.length ? a[ i ] & 0xFF : 0 );
+		if ( shift == 0 ) return w;
+		// The window does not start at a byte boundary, so we need the first bits of the ninth byte, too
+		return w << shift | ( start + 8 < a.length ? a[ start + 8 ] & 0xFF : 0 ) >>> 8 - shift;
+	}
+
+	/** Returns the bit of {@link #offsetRawData} at a given position.
+	 *
+	 * @param pos a bit position.
+	 * @return the bit at position <code>pos</code>.
+	 */
+	private int bit( final long pos ) {
+		return offsetRawData[ (int)( pos >>> 3 ) ] >>> 7 - ( pos & 7 ) & 1;
+	}
+
+	public final long getLong( final long index ) {
+		if ( index < 0 || index >= numOffsets ) throw new IndexOutOfBoundsException( Long.toString( index ) );
+		final int slotNumber = (int)( index / offsetStep );
+		final int k = (int)( index % offsetStep );
+		long value = startValue[ slotNumber ];
+		long pos = position[ slotNumber ];
+
+		// The next 64 bits to be decoded, of which only the first avail are valid
+		long w = 0;
+		int avail = 0;
+
+		for ( int i = k; i-- != 0; ) {
+			int zeroes = Long.numberOfLeadingZeros( w );
+			if ( 2 * zeroes + 1 > avail ) {
+				w = window( pos );
+				avail = Long.SIZE;
+				zeroes = Long.numberOfLeadingZeros( w );
+			}
+			if ( zeroes < Long.SIZE / 2 ) {
+				// The whole code is in the window
+				final int length = 2 * zeroes + 1;
+				value += ( w >>> Long.SIZE - length ) - 1;
+				w = length == Long.SIZE ? 0 : w << length;
+				avail -= length;
+				pos += length;
+			}
+			else {
+				// A long code: we decode it bit by bit
+				int z = 0;
+				while( bit( pos++ ) == 0 ) z++;
+				long x = 1;
+				while( z-- != 0 ) x = x << 1 | bit( pos++ );
+				value += x - 1;
+				avail = 0;
+			}
+		}
+		return value;
+	}
+
+	@Deprecated
+	public long length() {
+		return size64();
+	}
+
+	public long size64() {
+		return numOffsets;
+	}
+}
@@ -290,6 +290,28 @@ public abstract class ImmutableGraph implements FlyweightPrototype<ImmutableGrap
 		return LazyIntIterators.unwrapLoosely( successors( x ) );
 	}
 
+	/** Stores the successors of a given node into an array supplied by the caller.
+	 * 
+	 * <P>This method makes it possible to scan successor lists with no allocation and no
+	 * per-element method call: the same buffer can be reused for all nodes (growing it, if necessary, using
+	 * the outdegree of the node).
+	 * 
+	 * <P>This implementation just unwraps the iterator returned by {@link #successors(int)}. Subclasses 
+	 * are encouraged to override this implementation.
+	 * 
+	 * @param x a node.
+	 * @param buffer an array that will contain the successors of the node starting from index 0; it must
+	 * be at least as long as the outdegree of <code>x</code>.
+	 * @return the outdegree of <code>x</code>.
+	 * @throws IllegalArgumentException if <code>buffer</code> is shorter than the outdegree of <code>x</code>.
+	 */
+	public int successors( final int x, final int[] buffer ) {
+		final int d = outdegree( x );
+		if ( buffer.length < d ) throw new IllegalArgumentException( "The buffer length (" + buffer.length + ") is smaller than the outdegree of node " + x + " (" + d + ")" );
+		LazyIntIterators.unwrap( successors( x ), buffer, 0, d );
+		return d;
+	}
+
 	/** Returns the outdegree of a node.
 	 * 
 	 * @param x a node.
@@ -342,6 +364,67 @@ public abstract class ImmutableGraph implements FlyweightPrototype<ImmutableGrap
 		return nodeIterator( 0 );
 	}
 
+	/** Returns node iterators scanning disjoint consecutive ranges of nodes, which together cover the whole graph.
+	 *
+	 * <p>The <var>i</var>-th returned iterator enumerates the nodes of the <var>i</var>-th range (some ranges may be empty).
+	 * The iterators do not share any state, so they can be used concurrently by different threads, e.g., to perform
+	 * a whole-graph pass in parallel.
+	 *
+	 * <p>This implementation splits the nodes in ranges of (almost) equal size, and builds each iterator
+	 * by calling {@link #nodeIterator(int)} on a {@linkplain #copy() flyweight copy} of this graph.
+	 * More specific implementations may choose to balance the ranges differently.
+	 *
+	 * @param howMany the number of iterators.
+	 * @return an array of <code>howMany</code> node iterators over consecutive ranges of nodes.
+	 * @throws UnsupportedOperationException if <code>howMany</code> is greater than one and flyweight copies are not supported.
+	 */
+	public NodeIterator[] splitNodeIterators( final int howMany ) {
+		if ( howMany <= 0 ) throw new IllegalArgumentException( "Invalid number of iterators: " + howMany );
+		if ( howMany == 1 ) return new NodeIterator[] { nodeIterator() };
+		final int n = numNodes();
+		final NodeIterator[] result = new NodeIterator[ howMany ];
+		for( int i = 0; i < howMany; i++ ) {
+			final int from = (int)( (long)n * i / howMany ), to = (int)( (long)n * ( i + 1 ) / howMany );
+			result[ i ] = boundedNodeIterator( copy().nodeIterator( from ), from, to );
+		}
+		return result;
+	}
+
+	/** Limits a node iterator to a range of nodes.
+	 *
+	 * @param nodeIterator a node iterator that will return <code>from</code> as next node.
+	 * @param from the first node of the range (inclusive).
+	 * @param to the last node of the range (exclusive).
+	 * @return a node iterator that delegates to <code>nodeIterator</code> and stops before <code>to</code>.
+	 */
+	protected static NodeIterator boundedNodeIterator( final NodeIterator nodeIterator, final int from, final int to ) {
+		return new NodeIterator() {
+			private int left = to - from;
+
+			public boolean hasNext() {
+				return left != 0;
+			}
+
+			public int nextInt() {
+				if ( ! hasNext() ) throw new java.util.NoSuchElementException();
+				left--;
+				return nodeIterator.nextInt();
+			}
+
+			public int outdegree() {
+				return nodeIterator.outdegree();
+			}
+
+			public LazyIntIterator successors() {
+				return nodeIterator.successors();
+			}
+
+			public int[] successorArray() {
+				return nodeIterator.successorArray();
+			}
+		};
+	}
+
 	/** Returns a flyweight copy of this immutable graph.
 	 * 
 	 * @return a flyweight copy of this immutable graph.
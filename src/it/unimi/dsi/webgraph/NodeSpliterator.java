@@ -0,0 +1,170 @@
+package it.unimi.dsi.webgraph;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/** A {@link Spliterator} over the nodes of an immutable graph, making it possible to perform whole-graph passes
+ * using parallel streams.
+ *
+ * <p>A spliterator covers a range of nodes, and {@linkplain #trySplit() splits} by halving it. When a spliterator
+ * starts traversing its range, it creates a {@link NodeIterator} starting from the first node of the range
+ * on a {@linkplain ImmutableGraph#copy() flyweight copy} of the graph (for a {@link BVGraph}, the iterator
+ * has its own window of previous successor lists, so traversal benefits from referentiation exactly as a sequential scan).
+ * Graphs that are not {@linkplain ImmutableGraph#randomAccess() random access} are traversed by a single spliterator.
+ *
+ * <p>Each element of the stream is a {@link Node} that gives access to the current node and its successors. For
+ * efficiency, the same {@link Node} instance is passed to the action for all nodes of a range: its content is valid only during the
+ * call, and it must not be retained. For instance,
+ * <pre>
+ * final long sum = NodeSpliterator.stream( graph, true ).mapToLong( v -&gt; v.outdegree() ).sum();
+ * </pre>
+ */
+
+public class NodeSpliterator implements Spliterator<NodeSpliterator.Node> {
+	/** Ranges smaller than this will not be split. */
+	public final static int MIN_SPLIT_SIZE = 1024;
+
+	/** The current node and its successors, as returned by a {@link NodeIterator}. */
+	public final static class Node {
+		/** The underlying node iterator. */
+		private final NodeIterator nodeIterator;
+		/** The current node. */
+		private int node;
+
+		private Node( final NodeIterator nodeIterator ) {
+			this.nodeIterator = nodeIterator;
+		}
+
+		/** Returns the current node.
+		 *
+		 * @return the current node.
+		 */
+		public int node() {
+			return node;
+		}
+
+		/** Returns the outdegree of the current node.
+		 *
+		 * @return the outdegree of the current node.
+		 */
+		public int outdegree() {
+			return nodeIterator.outdegree();
+		}
+
+		/** Returns a lazy iterator over the successors of the current node.
+		 *
+		 * @return a lazy iterator over the successors of the current node.
+		 * @see NodeIterator#successors()
+		 */
+		public LazyIntIterator successors() {
+			return nodeIterator.successors();
+		}
+
+		/** Returns a reference to an array containing the successors of the current node.
+		 *
+		 * @return an array whose first {@link #outdegree()} elements are the successors of the current node; the array must not
+		 * be modified by the caller.
+		 * @see NodeIterator#successorArray()
+		 */
+		public int[] successorArray() {
+			return nodeIterator.successorArray();
+		}
+
+		public String toString() {
+			return Integer.toString( node );
+		}
+	}
+
+	/** The graph. */
+	private final ImmutableGraph graph;
+	/** The next node to be returned. */
+	private int from;
+	/** The end of the range (exclusive). */
+	private final int to;
+	/** The node to be passed to actions, or <code>null</code> if the traversal has not started yet. */
+	private Node current;
+
+	/** Creates a new spliterator over a range of nodes.
+	 *
+	 * @param graph a graph.
+	 * @param from the first node of the range (inclusive).
+	 * @param to the last node of the range (exclusive).
+	 */
+	public NodeSpliterator( final ImmutableGraph graph, final int from, final int to ) {
+		if ( from < 0 || from > to || to > graph.numNodes() ) throw new IllegalArgumentException( "Invalid range [" + from + ".." + to + ")" );
+		this.graph = graph;
+		this.from = from;
+		this.to = to;
+	}
+
+	/** Creates a new spliterator over all nodes of a graph.
+	 *
+	 * @param graph a graph.
+	 */
+	public NodeSpliterator( final ImmutableGraph graph ) {
+		this( graph, 0, graph.numNodes() );
+	}
+
+	/** Returns a stream over the nodes of a graph.
+	 *
+	 * @param graph a graph.
+	 * @param parallel whether the stream should be parallel.
+	 * @return a stream of {@link Node} instances, one for each node of <code>graph</code>, in increasing order.
+	 */
+	public static Stream<Node> stream( final ImmutableGraph graph, final boolean parallel ) {
+		return StreamSupport.stream( new NodeSpliterator( graph ), parallel );
+	}
+
+	/** Starts the traversal, creating a node iterator positioned on {@link #from}. */
+	private void start() {
+		final NodeIterator nodeIterator;
+		if ( from == 0 && to == graph.numNodes() ) nodeIterator = graph.nodeIterator();
+		else {
+			final ImmutableGraph copy;
+			// Spliterators of the same graph may start concurrently
+			synchronized( graph ) {
+				copy = graph.copy();
+			}
+			nodeIterator = copy.nodeIterator( from );
+		}
+		current = new Node( nodeIterator );
+	}
+
+	public boolean tryAdvance( final Consumer<? super Node> action ) {
+		if ( from == to ) return false;
+		if ( current == null ) start();
+		current.node = current.nodeIterator.nextInt();
+		from++;
+		action.accept( current );
+		return true;
+	}
+
+	public void forEachRemaining( final Consumer<? super Node> action ) {
+		if ( from == to ) return;
+		if ( current == null ) start();
+		final NodeIterator nodeIterator = current.nodeIterator;
+		while( from < to ) {
+			current.node = nodeIterator.nextInt();
+			from++;
+			action.accept( current );
+		}
+	}
+
+	public Spliterator<Node> trySplit() {
+		if ( current != null || to - from < 2 * MIN_SPLIT_SIZE || ! graph.randomAccess() ) return null;
+		final int mid = ( from + to ) >>> 1;
+		final NodeSpliterator prefix = new NodeSpliterator( graph, from, mid );
+		from = mid;
+		return prefix;
+	}
+
+	public long estimateSize() {
+		return to - from;
+	}
+
+	public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED | NONNULL;
+	}
+}
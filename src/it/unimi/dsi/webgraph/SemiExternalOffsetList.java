@@ -39,7 +39,8 @@ import java.io.IOException;
  * be necessary to read to access a given offset.
  *
  * <p><strong>Warning:</strong> This class is not thread safe, and needs to be synchronised to be used in a
- * multithreaded environment. 
+ * multithreaded environment. {@link ConcurrentSemiExternalOffsetList} is a lock-free variant
+ * that can be used when the compressed offsets fit in a byte array.
  *
  * @author Fabien Campagne
  * @author Sebastiano Vigna
@@ -0,0 +1,282 @@
+package it.unimi.dsi.webgraph;
+
+import it.unimi.dsi.Util;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A bounded cache of decoded successor arrays, keyed by node, with CLOCK eviction.
+ *
+ * <p>Decoding the successor list of a node of a {@link BVGraph} requires decoding recursively the lists it refers to.
+ * Random-access workloads that touch again and again the same nodes (e.g., hubs reached by every visit) can be sped up
+ * by {@linkplain BVGraph#successorCache(SuccessorCache) attaching} an instance of this class to a graph: successor lists
+ * of admitted nodes are then decoded once, and cached lists are used also when they are referenced by other lists.
+ *
+ * <p>The cache occupies at most a given number of bytes (as estimated by {@link #bytes(int)}). When a new array does not fit,
+ * older arrays are evicted using the CLOCK algorithm: each cached array has a reference bit that is set at each hit; the clock hand
+ * sweeps the arrays, clearing set bits and evicting the first array whose bit is clear. Only lists whose length is at least
+ * a given minimum outdegree are admitted, as short lists are cheap to decode and would just pollute the cache.
+ *
+ * <p>Arrays stored in the cache have exactly the length of the corresponding successor list, and must be treated as read-only.
+ * A single cache can be shared by several {@linkplain BVGraph#copy() copies} of a graph: {@link #get(int)} is lock-free (cached
+ * arrays are kept in a table of immutable chains published through an {@link AtomicReferenceArray}, reference bits are set
+ * without synchronisation, and hits and misses are counted by {@link LongAdder}s), whereas {@link #put(int, int[])}, which
+ * may evict arrays, and the remaining methods are synchronised. Thus, accessors decoding concurrently
+ * from a shared cache contend only when they insert new arrays.
+ */
+
+public class SuccessorCache {
+	/** The default minimum outdegree of a cached list. */
+	public final static int DEFAULT_MIN_OUTDEGREE = 32;
+	/** The estimated number of bytes used by a cache entry, besides the elements of the array. */
+	private final static int ENTRY_OVERHEAD = 48;
+	/** The initial number of buckets of the table. */
+	private final static int INITIAL_BUCKETS = 16;
+
+	/** A cached array. The fields are immutable, except for {@link #next}, which is modified only when an entry is removed,
+	 * and for the reference bit, which is set by lookups without synchronisation (a lost update just delays an eviction). */
+	private final static class Entry {
+		/** The cached node. */
+		final int node;
+		/** The successor array of {@link #node}. */
+		final int[] successors;
+		/** The slot of this entry. */
+		final int slot;
+		/** The next entry in the same bucket. */
+		volatile Entry next;
+		/** The reference bit of the CLOCK algorithm. */
+		boolean referenced;
+
+		Entry( final int node, final int[] successors, final int slot, final Entry next ) {
+			this.node = node;
+			this.successors = successors;
+			this.slot = slot;
+			this.next = next;
+		}
+	}
+
+	/** The maximum number of bytes used by the cache. */
+	private final long maxBytes;
+	/** The minimum outdegree of a cached list. */
+	private final int minOutdegree;
+	/** The buckets of the table (a power of two), each containing a chain of entries; it is replaced when the table is grown. */
+	private volatile AtomicReferenceArray<Entry> table = new AtomicReferenceArray<Entry>( INITIAL_BUCKETS );
+	/** For each slot, the entry in the table, or <code>null</code> if the slot is free; the clock hand sweeps this array. */
+	private Entry[] entry = new Entry[ 0 ];
+	/** The free slots. */
+	private final IntArrayList free = new IntArrayList();
+	/** The position of the clock hand. */
+	private int hand;
+	/** The number of cached arrays. */
+	private int size;
+	/** The number of bytes currently used. */
+	private long bytes;
+	/** The number of hits. */
+	private final LongAdder hits = new LongAdder();
+	/** The number of misses. */
+	private final LongAdder misses = new LongAdder();
+	/** The number of evictions. */
+	private long evictions;
+
+	/** Creates a new cache.
+	 *
+	 * @param maxBytes the maximum number of bytes used by the cache.
+	 * @param minOutdegree the minimum outdegree of a cached list.
+	 */
+	public SuccessorCache( final long maxBytes, final int minOutdegree ) {
+		if ( maxBytes < 0 ) throw new IllegalArgumentException( "Invalid maximum number of bytes: " + maxBytes );
+		this.maxBytes = maxBytes;
+		this.minOutdegree = minOutdegree;
+	}
+
+	/** Creates a new cache admitting lists of outdegree at least {@link #DEFAULT_MIN_OUTDEGREE}.
+	 *
+	 * @param maxBytes the maximum number of bytes used by the cache.
+	 */
+	public SuccessorCache( final long maxBytes ) {
+		this( maxBytes, DEFAULT_MIN_OUTDEGREE );
+	}
+
+	/** Returns the estimated number of bytes used by a cached list.
+	 *
+	 * @param outdegree the length of a list.
+	 * @return the estimated number of bytes used by caching a list of given length.
+	 */
+	public static long bytes( final int outdegree ) {
+		return ENTRY_OVERHEAD + (long)outdegree * Integer.SIZE / Byte.SIZE;
+	}
+
+	/** Returns whether a list of given length can be cached.
+	 *
+	 * @param outdegree the length of a list.
+	 * @return true if a list of given length can be cached.
+	 */
+	public boolean admits( final int outdegree ) {
+		return outdegree >= minOutdegree && bytes( outdegree ) <= maxBytes;
+	}
+
+	private static int bucket( final int x, final int buckets ) {
+		return HashCommon.murmurHash3( x ) & ( buckets - 1 );
+	}
+
+	/** Returns the entry of a node in a table.
+	 *
+	 * @param table a table.
+	 * @param x a node.
+	 * @return the entry of <code>x</code> in <code>table</code>, or <code>null</code>.
+	 */
+	private static Entry find( final AtomicReferenceArray<Entry> table, final int x ) {
+		for( Entry e = table.get( bucket( x, table.length() ) ); e != null; e = e.next ) if ( e.node == x ) return e;
+		return null;
+	}
+
+	/** Returns the cached successor array of a node.
+	 *
+	 * <p>This method does not lock the cache.
+	 *
+	 * @param x a node.
+	 * @return the successor array of <code>x</code>, or <code>null</code> if it is not cached.
+	 */
+	public int[] get( final int x ) {
+		final Entry e = find( table, x );
+		if ( e == null ) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		if ( ! e.referenced ) e.referenced = true;
+		return e.successors;
+	}
+
+	/** Caches the successor array of a node, if its length is admitted, evicting other arrays if necessary.
+	 *
+	 * @param x a node.
+	 * @param successors the successors of <code>x</code>, in an array of exactly the length of the list; it must not be modified after this call.
+	 */
+	public synchronized void put( final int x, final int[] successors ) {
+		if ( ! admits( successors.length ) || find( table, x ) != null ) return;
+		final long needed = bytes( successors.length );
+		while( bytes + needed > maxBytes ) evict();
+
+		final int s;
+		if ( free.isEmpty() ) {
+			s = entry.length;
+			entry = Arrays.copyOf( entry, Math.max( 16, 2 * s ) );
+			for( int i = entry.length; i-- != s + 1; ) free.add( i );
+		}
+		else s = free.popInt();
+
+		final AtomicReferenceArray<Entry> table = this.table;
+		final int b = bucket( x, table.length() );
+		table.set( b, entry[ s ] = new Entry( x, successors, s, table.get( b ) ) );
+		bytes += needed;
+		if ( ++size > table.length() ) grow();
+	}
+
+	/** Doubles the number of buckets, copying the entries (so that lookups in progress on the old table are not disturbed). */
+	private void grow() {
+		final AtomicReferenceArray<Entry> newTable = new AtomicReferenceArray<Entry>( 2 * table.length() );
+		for( int s = entry.length; s-- != 0; ) {
+			final Entry e = entry[ s ];
+			if ( e == null ) continue;
+			final int b = bucket( e.node, newTable.length() );
+			final Entry copy = new Entry( e.node, e.successors, s, newTable.get( b ) );
+			copy.referenced = e.referenced;
+			newTable.set( b, entry[ s ] = copy );
+		}
+		table = newTable;
+	}
+
+	/** Evicts an array using the CLOCK algorithm. */
+	private void evict() {
+		for(;;) {
+			if ( hand >= entry.length ) hand = 0;
+			final Entry e = entry[ hand++ ];
+			if ( e == null ) continue;
+			if ( e.referenced ) e.referenced = false;
+			else {
+				// Unlinking leaves e.next untouched, so lookups currently at e can proceed.
+				final int b = bucket( e.node, table.length() );
+				Entry p = table.get( b );
+				if ( p == e ) table.set( b, e.next );
+				else {
+					while( p.next != e ) p = p.next;
+					p.next = e.next;
+				}
+				bytes -= bytes( e.successors.length );
+				entry[ e.slot ] = null;
+				free.add( e.slot );
+				size--;
+				evictions++;
+				return;
+			}
+		}
+	}
+
+	/** Empties the cache and resets its statistics. */
+	public synchronized void clear() {
+		table = new AtomicReferenceArray<Entry>( INITIAL_BUCKETS );
+		entry = new Entry[ 0 ];
+		free.clear();
+		hand = size = 0;
+		bytes = evictions = 0;
+		hits.reset();
+		misses.reset();
+	}
+
+	/** Returns the number of cached arrays.
+	 *
+	 * @return the number of cached arrays.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/** Returns the estimated number of bytes currently used by the cache.
+	 *
+	 * @return the estimated number of bytes currently used by the cache.
+	 */
+	public synchronized long bytes() {
+		return bytes;
+	}
+
+	/** Returns the number of hits.
+	 *
+	 * @return the number of calls to {@link #get(int)} that found a cached array.
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/** Returns the number of misses.
+	 *
+	 * @return the number of calls to {@link #get(int)} that did not find a cached array.
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/** Returns the number of evictions.
+	 *
+	 * @return the number of arrays evicted to make room for new ones.
+	 */
+	public synchronized long evictions() {
+		return evictions;
+	}
+
+	/** Returns the hit rate.
+	 *
+	 * @return the fraction of calls to {@link #get(int)} that found a cached array, or 0 if there were no calls.
+	 */
+	public double hitRate() {
+		final long hits = hits(), misses = misses();
+		return hits + misses == 0 ? 0 : (double)hits / ( hits + misses );
+	}
+
+	public synchronized String toString() {
+		return size + " arrays, " + Util.formatSize( bytes ) + "B of " + Util.formatSize( maxBytes ) + "B, hit rate " + Util.format( 100 * hitRate() ) + "% (" + hits() + " hits, " + misses() + " misses, " + evictions + " evictions)";
+	}
+}
@@ -309,8 +309,19 @@ public class Transform {
 
 		private void fillCache( final int x ) {
 			if ( x == cachedNode ) return;
-			succ = LazyIntIterators.unwrap( successors( x ) );
-			label = super.labelArray( x );
+			// We cannot use super.labelArray(), as it calls outdegree(), which calls this method
+			final LabelledArcIterator successors = successors( x );
+			int[] succ = IntArrays.EMPTY_ARRAY;
+			Label[] label = new Label[ 0 ];
+			int d = 0;
+			for( int t; ( t = successors.nextInt() ) != -1; d++ ) {
+				succ = IntArrays.grow( succ, d + 1 );
+				label = ObjectArrays.grow( label, d + 1 );
+				succ[ d ] = t;
+				label[ d ] = successors.label().copy();
+			}
+			this.succ = IntArrays.trim( succ, d );
+			this.label = ObjectArrays.trim( label, d );
 			cachedNode = x;
 		}
 
@@ -0,0 +1,155 @@
+package it.unimi.dsi.webgraph.bench;
+
+import it.unimi.dsi.webgraph.ArrayListMutableGraph;
+import it.unimi.dsi.webgraph.BVGraph;
+import it.unimi.dsi.webgraph.CompressionFlags;
+import it.unimi.dsi.webgraph.LazyIntIterator;
+import it.unimi.dsi.webgraph.NodeIterator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** JMH benchmarks comparing {@linkplain BVGraph#RESIDUALS_GROUP_VARINT group varint} and &zeta;<sub>3</sub> coding of residuals.
+ *
+ * <p>A synthetic graph of <code>nodes</code> nodes is generated: each node has on average <code>outdegree</code> successors,
+ * most of which are close to the node, with a few random long-range arcs, as in web and social graphs. The graph is stored
+ * in a temporary directory with residuals coded as specified by <code>coding</code>, window size <code>windowSize</code>
+ * and maximum reference count <code>maxRefCount</code> (with window size 0 all successors are residuals, so the benchmarks measure
+ * residual decoding in isolation).
+ * The number of bits per link is printed at setup.
+ *
+ * <p>The benchmarks time a whole sequential scan, and random access using the lazy and the bulk successor methods.
+ * Every thread works on its own {@linkplain BVGraph#copy() copy} of the graph.
+ *
+ * <p>This class must be compiled with the JMH annotation processor enabled (see the package documentation), or
+ * no benchmark will be found at run time.
+ */
+
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ResidualCodingBenchmark {
+	/** The number of random-access queries; must be a power of two. */
+	private final static int QUERIES = 1 << 16;
+
+	@State( Scope.Benchmark )
+	public static class Data {
+		@Param( { "200000" } )
+		public int nodes;
+		@Param( { "20" } )
+		public int outdegree;
+		@Param( { "0", "7" } )
+		public int windowSize;
+		@Param( { "3" } )
+		public int maxRefCount;
+		@Param( { "ZETA", "GROUP_VARINT" } )
+		public String coding;
+
+		File dir;
+		BVGraph graph;
+		final int[] query = new int[ QUERIES ];
+
+		@Setup( Level.Trial )
+		public void setup() throws Exception {
+			dir = File.createTempFile( ResidualCodingBenchmark.class.getSimpleName(), "" );
+			if ( ! dir.delete() || ! dir.mkdir() ) throw new IOException( "Cannot create temporary directory " + dir );
+
+			final Random r = new Random( 0 );
+			final ArrayListMutableGraph g = new ArrayListMutableGraph();
+			g.addNodes( nodes );
+			for( int x = 0; x < nodes; x++ ) {
+				for( int d = r.nextInt( 2 * outdegree + 1 ); d-- != 0; ) {
+					// Mostly local arcs, whose distance grows geometrically, and some long-range ones
+					final int y = r.nextInt( 8 ) == 0 ? r.nextInt( nodes ) : x + (int)( ( r.nextBoolean() ? 1 : -1 ) * Math.exp( r.nextDouble() * 10 ) );
+					if ( y >= 0 && y < nodes && y != x ) try {
+						g.addArc( x, y );
+					}
+					catch( IllegalArgumentException duplicate ) {}
+				}
+			}
+
+			final String basename = new File( dir, coding ).toString();
+			final int flags = BVGraph.class.getField( "RESIDUALS_" + coding ).getInt( null );
+			BVGraph.store( g.immutableView(), basename, windowSize, maxRefCount, BVGraph.DEFAULT_MIN_INTERVAL_LENGTH, 3, flags, null );
+			graph = BVGraph.load( basename );
+			System.out.println( CompressionFlags.CODING_NAME[ flags >>> 8 ] + " residuals, window size " + windowSize + ": " + 8.0 * new File( basename + BVGraph.GRAPH_EXTENSION ).length() / graph.numArcs() + " bits per link" );
+
+			for( int i = 0; i < QUERIES; i++ ) query[ i ] = r.nextInt( nodes );
+		}
+
+		@TearDown( Level.Trial )
+		public void tearDown() {
+			final File[] file = dir.listFiles();
+			if ( file != null ) for( File f : file ) f.delete();
+			dir.delete();
+		}
+	}
+
+	@State( Scope.Thread )
+	public static class Cursor {
+		BVGraph graph;
+		int[] buffer;
+		int next;
+
+		@Setup( Level.Trial )
+		public void setup( final Data data ) {
+			graph = data.graph.copy();
+			buffer = new int[ graph.numNodes() ];
+		}
+
+		int next() {
+			return next = ( next + 1 ) & ( QUERIES - 1 );
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit( TimeUnit.MILLISECONDS )
+	public long scan( final Cursor cursor ) {
+		final NodeIterator nodeIterator = cursor.graph.nodeIterator();
+		long sum = 0;
+		for( int i = cursor.graph.numNodes(); i-- != 0; ) {
+			nodeIterator.nextInt();
+			final int[] s = nodeIterator.successorArray();
+			for( int j = nodeIterator.outdegree(); j-- != 0; ) sum += s[ j ];
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long randomLazy( final Data data, final Cursor cursor ) {
+		final LazyIntIterator successors = cursor.graph.successors( data.query[ cursor.next() ] );
+		long sum = 0;
+		for( int s; ( s = successors.nextInt() ) != -1; ) sum += s;
+		return sum;
+	}
+
+	@Benchmark
+	public int randomBulk( final Data data, final Cursor cursor ) {
+		return cursor.graph.successors( data.query[ cursor.next() ], cursor.buffer );
+	}
+
+	public static void main( final String arg[] ) throws RunnerException {
+		new Runner( new OptionsBuilder().include( ResidualCodingBenchmark.class.getName() ).build() ).run();
+	}
+}
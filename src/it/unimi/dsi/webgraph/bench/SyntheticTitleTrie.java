@@ -0,0 +1,100 @@
+package it.unimi.dsi.webgraph.bench;
+
+import it.unimi.dsi.webgraph.examples.IntegerTriplesArcLabelledImmutableGraph;
+import it.unimi.dsi.webgraph.examples.TitleAlphabet;
+import it.unimi.dsi.webgraph.examples.main_graphgen;
+import it.unimi.dsi.webgraph.examples.new_search;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+import java.util.TreeSet;
+
+/** A synthetic title database, built into title tries through the same path used for the real database.
+ *
+ * <p>Titles are sequences of two to four pseudo-words made of lower-case letters, joined by underscores,
+ * with an upper-case initial, just like Wikipedia titles. They are written, sorted and TAB-separated from their
+ * page id, to <code>Database_sorted.txt</code> in a fresh temporary directory; then
+ * {@link main_graphgen#build(File, String)} splits them into <code>db_</code> triple files, the triple
+ * files are compressed with {@link IntegerTriplesArcLabelledImmutableGraph#compress(File)}, and the resulting
+ * graphs are loaded back with {@link new_search#graphloader(File)}.
+ *
+ * <p>Titles never contain digits, so any query containing a digit is guaranteed to miss.
+ */
+
+public class SyntheticTitleTrie {
+	private final static String[] SYLLABLES = { "an", "ar", "ba", "ca", "de", "el", "en", "fo", "ga", "hi", "in", "is", "ka", "la", "li", "ma",
+		"mo", "na", "ne", "on", "or", "pa", "re", "ri", "sa", "se", "ta", "te", "to", "ul", "va", "ze" };
+
+	/** The directory containing the database, the triple files and the graphs. */
+	public final File dir;
+	/** The titles, in the order in which they appear in the database; the page id of <code>titles[ i ]</code> is <code>i + 1</code>. */
+	public final String[] titles;
+	/** The title tries, as returned by {@link new_search#graphloader(File)}. */
+	public final ArcLabelledImmutableGraph[] graphlist;
+	/** The graph boundaries, as returned by {@link new_search#get_graph_boundaries(File)}. */
+	public final int[][] graphbounds;
+	/** The alphabet of the title tries, as returned by {@link TitleAlphabet#load(File)}. */
+	public final TitleAlphabet alphabet;
+
+	private SyntheticTitleTrie( final File dir, final String[] titles, final ArcLabelledImmutableGraph[] graphlist, final int[][] graphbounds, final TitleAlphabet alphabet ) {
+		this.dir = dir;
+		this.titles = titles;
+		this.graphlist = graphlist;
+		this.graphbounds = graphbounds;
+		this.alphabet = alphabet;
+	}
+
+	/** Generates a sorted list of distinct synthetic titles.
+	 *
+	 * @param n the number of titles.
+	 * @param seed the seed of the pseudorandom generator.
+	 * @return <code>n</code> distinct titles, sorted.
+	 */
+	public static String[] titles( final int n, final long seed ) {
+		final Random r = new Random( seed );
+		final TreeSet<String> set = new TreeSet<String>();
+		final StringBuilder s = new StringBuilder();
+		while( set.size() < n ) {
+			s.setLength( 0 );
+			for( int w = 2 + r.nextInt( 3 ); w-- != 0; ) {
+				if ( s.length() != 0 ) s.append( '_' );
+				for( int l = 1 + r.nextInt( 4 ); l-- != 0; ) s.append( SYLLABLES[ r.nextInt( SYLLABLES.length ) ] );
+			}
+			s.setCharAt( 0, Character.toUpperCase( s.charAt( 0 ) ) );
+			set.add( s.toString() );
+		}
+		return set.toArray( new String[ n ] );
+	}
+
+	/** Builds and loads the title tries for a synthetic database in a new temporary directory.
+	 *
+	 * @param n the number of titles.
+	 * @param seed the seed of the pseudorandom generator.
+	 * @return the loaded title tries; call {@link #delete()} when done.
+	 */
+	public static SyntheticTitleTrie build( final int n, final long seed ) throws Exception {
+		final File dir = File.createTempFile( SyntheticTitleTrie.class.getSimpleName(), "" );
+		if ( ! dir.delete() || ! dir.mkdir() ) throw new IOException( "Cannot create temporary directory " + dir );
+
+		final String[] titles = titles( n, seed );
+		final PrintWriter pw = new PrintWriter( new File( dir, "Database_sorted.txt" ), "UTF-8" );
+		for( int i = 0; i < titles.length; i++ ) pw.println( titles[ i ] + "\t" + ( i + 1 ) );
+		pw.close();
+
+		main_graphgen.build( dir, "Database_sorted" );
+
+		IntegerTriplesArcLabelledImmutableGraph.compress( dir );
+
+		return new SyntheticTitleTrie( dir, titles, new_search.graphloader( dir ), new_search.get_graph_boundaries( dir ), TitleAlphabet.load( dir ) );
+	}
+
+	/** Deletes the temporary directory holding this trie. */
+	public void delete() {
+		final File[] file = dir.listFiles();
+		if ( file != null ) for( File f : file ) f.delete();
+		dir.delete();
+	}
+}
@@ -0,0 +1,147 @@
+package it.unimi.dsi.webgraph.bench;
+
+import it.unimi.dsi.webgraph.examples.new_search;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableGraph;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** JMH benchmarks for the title search path of {@link new_search}.
+ *
+ * <p>The benchmarks run {@link new_search#full_match(ArcLabelledImmutableGraph, it.unimi.dsi.webgraph.examples.TitleAlphabet, String, boolean) full_match},
+ * {@link new_search#getPrefixMatches(ArcLabelledImmutableGraph, it.unimi.dsi.webgraph.examples.TitleAlphabet, String) getPrefixMatches} and
+ * {@link new_search#find_string(ArcLabelledImmutableGraph[], it.unimi.dsi.webgraph.examples.TitleAlphabet, String, int[][]) find_string} against a
+ * {@link SyntheticTitleTrie} of <code>titles</code> titles. Queries are prefixes of length <code>prefixLength</code>
+ * of random titles (0 means the whole title); misses are obtained by replacing the last character of a hit with
+ * a digit, which never appears in a synthetic title.
+ *
+ * <p>Every thread works on its own {@linkplain ArcLabelledImmutableGraph#copy() copies} of the graphs, as random
+ * access to a graph is not thread safe. The main method runs the whole suite once for each thread count passed on the
+ * command line (by default, 1, 2, 4 and 8), with the {@link GCProfiler} enabled so that allocation rates are reported
+ * along with timings.
+ *
+ * <p>This class must be compiled with the JMH annotation processor enabled (see the package documentation), or
+ * no benchmark will be found at run time.
+ */
+
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class TitleSearchBenchmark {
+	/** The number of queries of each kind; must be a power of two. */
+	private final static int QUERIES = 1024;
+
+	@State( Scope.Benchmark )
+	public static class Data {
+		@Param( { "50000" } )
+		public int titles;
+		@Param( { "3", "6", "12", "0" } )
+		public int prefixLength;
+
+		SyntheticTitleTrie trie;
+		final String[] hit = new String[ QUERIES ];
+		final String[] miss = new String[ QUERIES ];
+		final int[] hitGraph = new int[ QUERIES ];
+		final int[] missGraph = new int[ QUERIES ];
+
+		@Setup( Level.Trial )
+		public void setup() throws Exception {
+			trie = SyntheticTitleTrie.build( titles, 0 );
+			final Random r = new Random( 1 );
+			for( int i = 0; i < QUERIES; i++ ) {
+				final String title = trie.titles[ r.nextInt( trie.titles.length ) ];
+				hit[ i ] = prefixLength == 0 ? title : title.substring( 0, Math.min( prefixLength, title.length() ) );
+				miss[ i ] = hit[ i ].substring( 0, hit[ i ].length() - 1 ) + '7';
+				hitGraph[ i ] = new_search.find_file( hit[ i ], trie.graphbounds );
+				missGraph[ i ] = new_search.find_file( miss[ i ], trie.graphbounds );
+			}
+		}
+
+		@TearDown( Level.Trial )
+		public void tearDown() {
+			trie.delete();
+		}
+	}
+
+	@State( Scope.Thread )
+	public static class Cursor {
+		ArcLabelledImmutableGraph[] graphlist;
+		int next;
+
+		@Setup( Level.Trial )
+		public void setup( final Data data ) {
+			graphlist = new ArcLabelledImmutableGraph[ data.trie.graphlist.length ];
+			for( int i = graphlist.length; i-- != 0; ) graphlist[ i ] = data.trie.graphlist[ i ].copy();
+		}
+
+		int next() {
+			return next = ( next + 1 ) & ( QUERIES - 1 );
+		}
+	}
+
+	@Benchmark
+	public int fullMatchHit( final Data data, final Cursor cursor ) throws Exception {
+		final int q = cursor.next();
+		return new_search.full_match( cursor.graphlist[ data.hitGraph[ q ] ], data.trie.alphabet, data.hit[ q ], true );
+	}
+
+	@Benchmark
+	public int fullMatchMiss( final Data data, final Cursor cursor ) throws Exception {
+		final int q = cursor.next();
+		return new_search.full_match( cursor.graphlist[ data.missGraph[ q ] ], data.trie.alphabet, data.miss[ q ], true );
+	}
+
+	@Benchmark
+	public ArrayList<String> prefixMatchesHit( final Data data, final Cursor cursor ) throws Exception {
+		final int q = cursor.next();
+		return new_search.getPrefixMatches( cursor.graphlist[ data.hitGraph[ q ] ], data.trie.alphabet, data.hit[ q ] );
+	}
+
+	@Benchmark
+	public ArrayList<String> prefixMatchesMiss( final Data data, final Cursor cursor ) throws Exception {
+		final int q = cursor.next();
+		return new_search.getPrefixMatches( cursor.graphlist[ data.missGraph[ q ] ], data.trie.alphabet, data.miss[ q ] );
+	}
+
+	@Benchmark
+	public int findStringHit( final Data data, final Cursor cursor ) throws Exception {
+		return new_search.find_string( cursor.graphlist, data.trie.alphabet, data.hit[ cursor.next() ], data.trie.graphbounds );
+	}
+
+	@Benchmark
+	public int findStringMiss( final Data data, final Cursor cursor ) throws Exception {
+		return new_search.find_string( cursor.graphlist, data.trie.alphabet, data.miss[ cursor.next() ], data.trie.graphbounds );
+	}
+
+	public static void main( final String arg[] ) throws RunnerException {
+		final int[] threads = arg.length == 0 ? new int[] { 1, 2, 4, 8 } : new int[ arg.length ];
+		for( int i = 0; i < arg.length; i++ ) threads[ i ] = Integer.parseInt( arg[ i ] );
+		for( int t : threads )
+			new Runner( new OptionsBuilder()
+				.include( TitleSearchBenchmark.class.getName() )
+				.threads( t )
+				.addProfiler( GCProfiler.class )
+				.build() ).run();
+	}
+}
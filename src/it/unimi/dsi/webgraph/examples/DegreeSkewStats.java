@@ -0,0 +1,386 @@
+package it.unimi.dsi.webgraph.examples;
+
+import it.unimi.dsi.Util;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongHeapPriorityQueue;
+import it.unimi.dsi.logging.ProgressLogger;
+import it.unimi.dsi.webgraph.GraphClassParser;
+import it.unimi.dsi.webgraph.ImmutableGraph;
+import it.unimi.dsi.webgraph.NodeIterator;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.Switch;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+/** Computes, with a single parallel scan, data about the skew of the outdegree distribution of a graph
+ * and about anomalies of its successor lists.
+ *
+ * <p>The nodes of the graph are divided into ranges of {@link #RANGE_SIZE} nodes, which are scanned by several threads,
+ * each one using its own {@linkplain ImmutableGraph#copy() copy} of the graph and a {@linkplain ImmutableGraph#nodeIterator(int) node iterator}
+ * starting at the beginning of the range (if the graph does not provide random access, a single thread scans the whole graph).
+ * The results of the threads are then merged into a {@link Result}, which can be written as a property file with the following keys:
+ * <ul>
+ * <li><code>nodes</code>, <code>arcs</code>: the number of nodes and the number of arcs (as counted by the scan);
+ * <li><code>minoutdegree</code>, <code>maxoutdegree</code>, <code>avgoutdegree</code>: as in {@link OutdegreeStats};
+ * <li><code>outdegreep50</code>, <code>outdegreep90</code>, <code>outdegreep99</code>, <code>outdegreep999</code>: outdegree percentiles (the smallest
+ * outdegree <var>d</var> such that the given fraction of nodes has outdegree at most <var>d</var>);
+ * <li><code>heavythreshold</code>, <code>heavynodes</code>, <code>heavyarcs</code>: the outdegree above which a node is considered heavy, the number of heavy nodes and the number of arcs going out of them;
+ * <li><code>tophubs</code>, <code>tophubsarcs</code>: a comma-separated list of <code><var>node</var>:<var>outdegree</var></code> pairs for the nodes of largest outdegree, in decreasing order, and the number of arcs going out of them;
+ * <li><code>loops</code>, <code>loopsample</code>: the number of loops (arcs from a node to itself), and the smallest nodes with a loop;
+ * <li><code>duplicatearcs</code>, <code>unsortednodes</code>: the number of arcs that appear more than once in a successor list (counting all but one occurrence), and the number of nodes whose successors are not returned in increasing order.
+ * </ul>
+ *
+ * <p>This class replaces a rescan of the PageLinks dump (such as that performed by <code>utilities.find_same_sds()</code>) with a scan of the compressed graph.
+ */
+
+public class DegreeSkewStats {
+	private static final Logger LOGGER = Util.getLogger( DegreeSkewStats.class );
+
+	/** The number of nodes in a range. */
+	public static final int RANGE_SIZE = 64 * 1024;
+	/** The default number of hubs reported. */
+	public static final int DEFAULT_TOP = 20;
+	/** The default outdegree above which a node is considered heavy. */
+	public static final int DEFAULT_HEAVY_THRESHOLD = 5000;
+
+	private DegreeSkewStats() {}
+
+	/** The data gathered by a scan, either of a range of nodes or of the whole graph. */
+	public final static class Result {
+		/** The number of nodes with given outdegree. */
+		public long[] count = LongArrays.EMPTY_ARRAY;
+		/** The number of nodes scanned. */
+		public long nodes;
+		/** The number of arcs scanned. */
+		public long arcs;
+		public int minOutdegree = Integer.MAX_VALUE, minOutdegreeNode = -1, maxOutdegree = -1, maxOutdegreeNode = -1;
+		/** The number of loops. */
+		public long loops;
+		/** The number of heavy nodes and of the arcs going out of them. */
+		public long heavyNodes, heavyArcs;
+		/** The number of repeated arcs. */
+		public long duplicateArcs;
+		/** The number of nodes whose successors are not sorted. */
+		public long unsortedNodes;
+		/** The hubs, as a min-queue of outdegrees shifted left by 32 bits or-ed with nodes. */
+		private final LongHeapPriorityQueue hubs = new LongHeapPriorityQueue();
+		/** The smallest nodes with a loop, as a max-queue of negated nodes. */
+		private final LongHeapPriorityQueue loopSample = new LongHeapPriorityQueue();
+		private final int top;
+		private final int heavyThreshold;
+
+		private Result( final int top, final int heavyThreshold ) {
+			this.top = top;
+			this.heavyThreshold = heavyThreshold;
+		}
+
+		/** Adds a node to a bounded queue, keeping only the largest <code>top</code> keys. */
+		private void offer( final LongHeapPriorityQueue queue, final long key ) {
+			if ( queue.size() < top ) queue.enqueue( key );
+			else if ( top > 0 && key > queue.firstLong() ) {
+				queue.dequeueLong();
+				queue.enqueue( key );
+			}
+		}
+
+		/** Accounts for a node.
+		 *
+		 * @param x a node.
+		 * @param d its outdegree.
+		 * @param successor its successors.
+		 * @param scratch a scratch array to sort successors.
+		 * @return <code>scratch</code>, possibly reallocated.
+		 */
+		private int[] add( final int x, final int d, final int[] successor, int[] scratch ) {
+			nodes++;
+			arcs += d;
+			if ( d >= count.length ) count = LongArrays.grow( count, d + 1 );
+			count[ d ]++;
+			if ( d < minOutdegree ) {
+				minOutdegree = d;
+				minOutdegreeNode = x;
+			}
+			if ( d > maxOutdegree ) {
+				maxOutdegree = d;
+				maxOutdegreeNode = x;
+			}
+			if ( d > heavyThreshold ) {
+				heavyNodes++;
+				heavyArcs += d;
+			}
+			offer( hubs, (long)d << 32 | x );
+
+			boolean loop = false, sorted = true;
+			for( int i = 0; i < d; i++ ) {
+				if ( successor[ i ] == x ) {
+					loops++;
+					loop = true;
+				}
+				if ( i != 0 ) {
+					if ( successor[ i ] == successor[ i - 1 ] ) duplicateArcs++;
+					else if ( successor[ i ] < successor[ i - 1 ] ) sorted = false;
+				}
+			}
+			if ( loop ) offer( loopSample, -x );
+			if ( ! sorted ) {
+				unsortedNodes++;
+				// Duplicates are not necessarily adjacent: we recount them on a sorted copy
+				scratch = IntArrays.ensureCapacity( scratch, d );
+				System.arraycopy( successor, 0, scratch, 0, d );
+				IntArrays.quickSort( scratch, 0, d );
+				for( int i = 1; i < d; i++ ) {
+					if ( successor[ i ] == successor[ i - 1 ] ) duplicateArcs--;
+					if ( scratch[ i ] == scratch[ i - 1 ] ) duplicateArcs++;
+				}
+			}
+			return scratch;
+		}
+
+		/** Merges into this result another one.
+		 *
+		 * @param r a result gathered on disjoint nodes.
+		 */
+		private void merge( final Result r ) {
+			if ( r.count.length > count.length ) count = LongArrays.grow( count, r.count.length );
+			for( int d = r.count.length; d-- != 0; ) count[ d ] += r.count[ d ];
+			nodes += r.nodes;
+			arcs += r.arcs;
+			if ( r.minOutdegree < minOutdegree || r.minOutdegree == minOutdegree && r.minOutdegreeNode < minOutdegreeNode ) {
+				minOutdegree = r.minOutdegree;
+				minOutdegreeNode = r.minOutdegreeNode;
+			}
+			if ( r.maxOutdegree > maxOutdegree || r.maxOutdegree == maxOutdegree && r.maxOutdegreeNode < maxOutdegreeNode ) {
+				maxOutdegree = r.maxOutdegree;
+				maxOutdegreeNode = r.maxOutdegreeNode;
+			}
+			loops += r.loops;
+			heavyNodes += r.heavyNodes;
+			heavyArcs += r.heavyArcs;
+			duplicateArcs += r.duplicateArcs;
+			unsortedNodes += r.unsortedNodes;
+			while( ! r.hubs.isEmpty() ) offer( hubs, r.hubs.dequeueLong() );
+			while( ! r.loopSample.isEmpty() ) offer( loopSample, r.loopSample.dequeueLong() );
+		}
+
+		/** Returns the keys in a queue, in increasing order, leaving the queue unchanged. */
+		private static long[] keys( final LongHeapPriorityQueue queue ) {
+			final long[] key = new long[ queue.size() ];
+			for( int i = 0; i < key.length; i++ ) key[ i ] = queue.dequeueLong();
+			for( long k : key ) queue.enqueue( k );
+			return key;
+		}
+
+		/** Returns an outdegree percentile.
+		 *
+		 * @param p a fraction of nodes.
+		 * @return the smallest outdegree <var>d</var> such that at least a fraction <code>p</code> of the nodes has outdegree at most <var>d</var>.
+		 */
+		public int percentile( final double p ) {
+			long c = 0;
+			for( int d = 0; d < count.length; d++ ) if ( ( c += count[ d ] ) >= Math.ceil( p * nodes ) ) return d;
+			return maxOutdegree;
+		}
+
+		/** Returns the hubs, sorted by decreasing outdegree.
+		 *
+		 * @return an array of pairs <code>{ <var>node</var>, <var>outdegree</var> }</code>.
+		 */
+		public int[][] hubs() {
+			final long[] key = keys( hubs );
+			final int[][] hub = new int[ key.length ][];
+			for( int i = key.length; i-- != 0; ) hub[ key.length - 1 - i ] = new int[] { (int)key[ i ], (int)( key[ i ] >>> 32 ) };
+			return hub;
+		}
+
+		/** Returns a sample of the nodes with a loop.
+		 *
+		 * @return the smallest nodes with a loop, in increasing order.
+		 */
+		public int[] loopSample() {
+			final long[] key = keys( loopSample );
+			final int[] node = new int[ key.length ];
+			for( int i = key.length; i-- != 0; ) node[ key.length - 1 - i ] = (int)-key[ i ];
+			return node;
+		}
+
+		/** Writes this result in property-file format (see the {@linkplain DegreeSkewStats class documentation}).
+		 *
+		 * @param pw a print writer.
+		 */
+		public void write( final PrintWriter pw ) {
+			pw.println( "nodes=" + nodes );
+			pw.println( "arcs=" + arcs );
+			pw.println( "minoutdegree=" + minOutdegree );
+			pw.println( "minoutdegreenode=" + minOutdegreeNode );
+			pw.println( "maxoutdegree=" + maxOutdegree );
+			pw.println( "maxoutdegreenode=" + maxOutdegreeNode );
+			pw.println( "avgoutdegree=" + ( nodes == 0 ? 0 : (double)arcs / nodes ) );
+			pw.println( "outdegreep50=" + percentile( .5 ) );
+			pw.println( "outdegreep90=" + percentile( .9 ) );
+			pw.println( "outdegreep99=" + percentile( .99 ) );
+			pw.println( "outdegreep999=" + percentile( .999 ) );
+			pw.println( "heavythreshold=" + heavyThreshold );
+			pw.println( "heavynodes=" + heavyNodes );
+			pw.println( "heavyarcs=" + heavyArcs );
+			final StringBuilder s = new StringBuilder();
+			long hubArcs = 0;
+			for( int[] hub : hubs() ) {
+				if ( s.length() != 0 ) s.append( ',' );
+				s.append( hub[ 0 ] ).append( ':' ).append( hub[ 1 ] );
+				hubArcs += hub[ 1 ];
+			}
+			pw.println( "tophubs=" + s );
+			pw.println( "tophubsarcs=" + hubArcs );
+			pw.println( "loops=" + loops );
+			s.setLength( 0 );
+			for( int x : loopSample() ) {
+				if ( s.length() != 0 ) s.append( ',' );
+				s.append( x );
+			}
+			pw.println( "loopsample=" + s );
+			pw.println( "duplicatearcs=" + duplicateArcs );
+			pw.println( "unsortednodes=" + unsortedNodes );
+		}
+	}
+
+	/** Scans a range of nodes.
+	 *
+	 * @param nodeIterator a node iterator that will return <code>from</code> as next node.
+	 * @param from the first node of the range.
+	 * @param to the last node of the range, plus one.
+	 * @param result the result to be updated.
+	 * @param scratch a scratch array.
+	 * @return <code>scratch</code>, possibly reallocated.
+	 */
+	private static int[] scan( final NodeIterator nodeIterator, final int from, final int to, final Result result, int[] scratch ) {
+		for( int i = from; i < to; i++ ) {
+			final int x = nodeIterator.nextInt();
+			final int d = nodeIterator.outdegree();
+			scratch = result.add( x, d, nodeIterator.successorArray(), scratch );
+		}
+		return scratch;
+	}
+
+	/** Computes degree-skew data for a graph.
+	 *
+	 * @param graph a graph.
+	 * @param top the number of hubs (and of sample loop nodes) to report.
+	 * @param heavyThreshold the outdegree above which a node is considered heavy.
+	 * @param threads the number of threads (only one is used if <code>graph</code> does not provide random access).
+	 * @param pl a progress logger, or <code>null</code>.
+	 * @return the gathered data.
+	 */
+	public static Result compute( final ImmutableGraph graph, final int top, final int heavyThreshold, int threads, final ProgressLogger pl ) {
+		final int n = graph.numNodes();
+		if ( ! graph.randomAccess() ) threads = 1;
+		threads = Math.max( 1, Math.min( threads, ( n + RANGE_SIZE - 1 ) / RANGE_SIZE ) );
+
+		if ( pl != null ) {
+			pl.itemsName = "nodes";
+			pl.expectedUpdates = n;
+			pl.start( "Scanning with " + threads + " threads..." );
+		}
+
+		final Result result = new Result( top, heavyThreshold );
+		if ( threads == 1 ) {
+			final NodeIterator nodeIterator = graph.nodeIterator();
+			int[] scratch = IntArrays.EMPTY_ARRAY;
+			for( int from = 0; from < n; from += RANGE_SIZE ) {
+				final int to = Math.min( n, from + RANGE_SIZE );
+				scratch = scan( nodeIterator, from, to, result, scratch );
+				if ( pl != null ) pl.update( to - from );
+			}
+		}
+		else {
+			final AtomicInteger nextRange = new AtomicInteger();
+			final ExecutorService executor = Executors.newFixedThreadPool( threads );
+			final List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for( int i = 0; i < threads; i++ ) {
+				final ImmutableGraph g = graph.copy();
+				futures.add( executor.submit( new Callable<Result>() {
+					public Result call() {
+						final Result r = new Result( top, heavyThreshold );
+						int[] scratch = IntArrays.EMPTY_ARRAY;
+						// Ranges are assigned dynamically, as their scanning time depends on their arcs
+						for( int range; ( range = nextRange.getAndIncrement() ) < ( n + RANGE_SIZE - 1 ) / RANGE_SIZE; ) {
+							final int from = range * RANGE_SIZE, to = Math.min( n, from + RANGE_SIZE );
+							scratch = scan( g.nodeIterator( from ), from, to, r, scratch );
+							if ( pl != null ) synchronized( pl ) {
+								pl.update( to - from );
+							}
+						}
+						return r;
+					}
+				} ) );
+			}
+			executor.shutdown();
+			try {
+				for( Future<Result> f : futures ) result.merge( f.get() );
+			}
+			catch( InterruptedException e ) {
+				throw new RuntimeException( e );
+			}
+			catch( ExecutionException e ) {
+				throw new RuntimeException( e.getCause() );
+			}
+		}
+
+		if ( pl != null ) pl.done();
+		return result;
+	}
+
+	static public void main( String arg[] ) throws IllegalArgumentException, SecurityException, IllegalAccessException, InvocationTargetException, NoSuchMethodException, JSAPException, IOException {
+		SimpleJSAP jsap = new SimpleJSAP( DegreeSkewStats.class.getName(), "Computes in parallel outdegree percentiles, hubs, heavy nodes, loops and duplicate arcs of a graph, and prints them as a property file.",
+				new Parameter[] {
+						new FlaggedOption( "graphClass", GraphClassParser.getParser(), null, JSAP.NOT_REQUIRED, 'g', "graph-class", "Forces a Java class for the source graph." ),
+						new FlaggedOption( "logInterval", JSAP.LONG_PARSER, Long.toString( ProgressLogger.DEFAULT_LOG_INTERVAL ), JSAP.NOT_REQUIRED, 'l', "log-interval", "The minimum time interval between activity logs in milliseconds." ),
+						new FlaggedOption( "threads", JSAP.INTEGER_PARSER, Integer.toString( Runtime.getRuntime().availableProcessors() ), JSAP.NOT_REQUIRED, 't', "threads", "The number of scanning threads." ),
+						new FlaggedOption( "top", JSAP.INTEGER_PARSER, Integer.toString( DEFAULT_TOP ), JSAP.NOT_REQUIRED, 'k', "top", "The number of hubs and of sample loop nodes to report." ),
+						new FlaggedOption( "heavy", JSAP.INTEGER_PARSER, Integer.toString( DEFAULT_HEAVY_THRESHOLD ), JSAP.NOT_REQUIRED, 'h', "heavy", "The outdegree above which a node is considered heavy." ),
+						new Switch( "offline", 'o', "offline", "Load the graph offline (the scan will use a single thread)." ),
+						new UnflaggedOption( "basename", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The basename of the graph." ),
+						new UnflaggedOption( "output", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY, "The output property file (default: standard output)." ),
+					}
+				);
+
+		JSAPResult jsapResult = jsap.parse( arg );
+		if ( jsap.messagePrinted() ) System.exit( 1 );
+
+		final Class<?> graphClass = jsapResult.getClass( "graphClass" );
+		final String basename = jsapResult.getString( "basename" );
+		final String method = jsapResult.getBoolean( "offline" ) ? "loadOffline" : "load";
+
+		final ProgressLogger pl = new ProgressLogger( LOGGER, jsapResult.getLong( "logInterval" ) );
+		final ImmutableGraph graph;
+		// We fetch by reflection the class specified by the user
+		if ( graphClass != null ) graph = (ImmutableGraph)graphClass.getMethod( method, CharSequence.class ).invoke( null, basename );
+		else graph = jsapResult.getBoolean( "offline" ) ? ImmutableGraph.loadOffline( basename, pl ) : ImmutableGraph.load( basename, pl );
+
+		final Result result = compute( graph, jsapResult.getInt( "top" ), jsapResult.getInt( "heavy" ), jsapResult.getInt( "threads" ), pl );
+		final PrintWriter pw = new PrintWriter( new OutputStreamWriter( jsapResult.userSpecified( "output" ) ? new FileOutputStream( jsapResult.getString( "output" ) ) : System.out, "UTF-8" ) );
+		result.write( pw );
+		pw.close();
+	}
+}
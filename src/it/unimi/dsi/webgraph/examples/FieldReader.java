@@ -0,0 +1,68 @@
+package it.unimi.dsi.webgraph.examples;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Parses the TAB-separated fields of each line of a stream, directly from its bytes.
+ *
+ * <p>Fields are parsed as nonnegative integers; no string is ever created, which makes this class
+ * much faster than reading lines and splitting them when loading large dumps.
+ */
+
+final class FieldReader {
+	/** The maximum number of fields that are parsed. */
+	final static int MAX_FIELDS = 8;
+	private final InputStream is;
+	private final byte[] buffer = new byte[ 64 * 1024 ];
+	/** The position of the next byte in {@link #buffer}. */
+	private int pos;
+	/** The number of valid bytes in {@link #buffer}. */
+	private int avail;
+	/** The fields of the last line read, or -1 for fields that are not nonnegative integers. */
+	final int[] field = new int[ MAX_FIELDS ];
+
+	FieldReader( final InputStream is ) {
+		this.is = is;
+	}
+
+	/** Reads a line.
+	 *
+	 * @return the number of fields of the line (only the first {@link #MAX_FIELDS} are stored in {@link #field}), or -1 at the end of the stream.
+	 */
+	int readLine() throws IOException {
+		int f = 0;
+		long v = 0;
+		boolean numeric = true, empty = true, any = false;
+		for(;;) {
+			if ( pos == avail ) {
+				pos = 0;
+				if ( ( avail = is.read( buffer ) ) <= 0 ) {
+					avail = 0;
+					if ( ! any ) return -1;
+					break;
+				}
+			}
+			final byte b = buffer[ pos++ ];
+			any = true;
+			if ( b == '\n' ) break;
+			if ( b == '\t' ) {
+				if ( f < MAX_FIELDS ) field[ f ] = numeric && ! empty ? (int)v : -1;
+				f++;
+				v = 0;
+				numeric = empty = true;
+			}
+			else if ( b >= '0' && b <= '9' ) {
+				if ( numeric ) v = v * 10 + b - '0';
+				if ( v > Integer.MAX_VALUE ) numeric = false;
+				empty = false;
+			}
+			else if ( b != '\r' ) numeric = false;
+		}
+		if ( f < MAX_FIELDS ) field[ f ] = numeric && ! empty ? (int)v : -1;
+		return f + 1;
+	}
+
+	void close() throws IOException {
+		is.close();
+	}
+}
@@ -0,0 +1,258 @@
+package it.unimi.dsi.webgraph.examples;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableGraph;
+import it.unimi.dsi.webgraph.labelling.Label;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/** Wildcard and infix title search through a suffix-sharded index.
+ *
+ * <p>The prefix tree built by {@link labelled_graphgen} can only answer queries about the beginning of a title. This class
+ * builds a second set of prefix trees, in a separate directory and with exactly the same machinery, in which every
+ * <em>word-start suffix</em> of every title (the title itself, and whatever follows each underscore) is inserted with
+ * the page id of its title. A query such as <samp>*Revolution*</samp> becomes a prefix query for <samp>Revolution</samp>
+ * on the suffix trees, so its cost is proportional to the length of the query and to the size of the output, and
+ * not to the size of the database.
+ *
+ * <p>Suffixes are {@linkplain main_modify_database#modify(String) modified} like titles before sorting; in this way the first two
+ * characters of a suffix are recorded in <code>log.txt</code> in the same form {@link new_search#find_file(String, int[][])}
+ * modifies them to, and several titles sharing a word (<samp>French_Revolution</samp>, <samp>Russian_Revolution</samp>)
+ * share the same path in the tree, with one leaf per page id.
+ *
+ * <p>Files are read and written using the platform encoding, as {@link labelled_graphgen} does. The suffix database
+ * is sorted in batches which are spilled to temporary files and then merged, so the memory needed does not depend
+ * on the size of the title database.
+ */
+
+public class InfixSearch {
+	/** The number of suffixes sorted in memory at a time while building. */
+	public final static int DEFAULT_BATCH_SIZE = 1000000;
+	/** The basename of the sorted suffix database written in the index directory. */
+	public final static String SUFFIX_DATABASE = "Suffixes_sorted";
+
+	/** The suffix trees, as returned by {@link new_search#graphloader(File)}. */
+	private final ArcLabelledImmutableGraph[] graphlist;
+	/** The boundaries of the suffix trees, as returned by {@link new_search#get_graph_boundaries(File)}. */
+	private final int[][] graphbounds;
+	/** The alphabet of the suffix trees. */
+	private final TitleAlphabet alphabet;
+	/** The title trees, used for prefix queries. */
+	private final ArcLabelledImmutableGraph[] titleGraphlist;
+	/** The boundaries of the title trees. */
+	private final int[][] titleGraphbounds;
+	/** The alphabet of the title trees. */
+	private final TitleAlphabet titleAlphabet;
+
+	/** Loads the title trees in the given directory and the infix index built by {@link #build(File, String, File, int)} in another directory.
+	 *
+	 * @param titleDir the directory of the title trees built by {@link labelled_graphgen}.
+	 * @param dir the directory of the infix index.
+	 */
+	public InfixSearch( final File titleDir, final File dir ) throws Exception {
+		graphlist = new_search.graphloader( dir );
+		graphbounds = new_search.get_graph_boundaries( dir );
+		alphabet = TitleAlphabet.load( dir );
+		titleGraphlist = new_search.graphloader( titleDir );
+		titleGraphbounds = new_search.get_graph_boundaries( titleDir );
+		titleAlphabet = TitleAlphabet.load( titleDir );
+	}
+
+	/** Loads the title trees in the current directory and the infix index built by {@link #build(File, String, File, int)} in the given directory.
+	 *
+	 * @param dir the directory of the infix index.
+	 */
+	public InfixSearch( final File dir ) throws Exception {
+		this( new File( "." ), dir );
+	}
+
+	/** Searches for titles matching a pattern.
+	 *
+	 * <p>A pattern of the form <samp>*word*</samp> returns the titles containing <samp>word</samp> at the start of one of
+	 * their words; a pattern of the form <samp>*word</samp> returns the titles whose last word(s) are exactly <samp>word</samp>.
+	 * A pattern with no leading star is a plain prefix query, and is answered by the title trees. Case is not significant.
+	 *
+	 * @param pattern the pattern.
+	 * @return a map from page ids to matching suffixes (titles, for prefix queries), or <code>null</code> if nothing matches.
+	 */
+	public HashMap<Integer,String> search( final String pattern ) throws Exception {
+		if ( ! pattern.startsWith( "*" ) ) {
+			final String prefix = pattern.endsWith( "*" ) ? pattern.substring( 0, pattern.length() - 1 ) : pattern;
+			return prefix.length() == 0 ? null : new_search.prefixMatch( titleGraphlist, titleAlphabet, prefix, titleGraphbounds );
+		}
+		return pattern.endsWith( "*" ) && pattern.length() > 1 ? infix( pattern.substring( 1, pattern.length() - 1 ) ) : suffix( pattern.substring( 1 ) );
+	}
+
+	/** Returns the titles having a word starting with the given string.
+	 *
+	 * @param s a string, possibly spanning several words.
+	 * @return a map from page ids to the suffix of the title starting with <code>s</code>, or <code>null</code> if no title matches.
+	 */
+	public HashMap<Integer,String> infix( final String s ) throws Exception {
+		if ( s.length() == 0 ) return null;
+		return new_search.prefixMatch( graphlist, alphabet, s, graphbounds );
+	}
+
+	/** Returns the titles ending with the given sequence of words.
+	 *
+	 * <p>The path spelling <code>s</code> is followed in the suffix tree, and only the leaf arcs of the node it reaches (i.e., the
+	 * page ids of the suffixes ending there) are read, so the cost is proportional to the length of <code>s</code> and to the size of the output.
+	 *
+	 * @param s a sequence of whole words.
+	 * @return a map from page ids to <code>s</code>, or <code>null</code> if no title matches.
+	 */
+	public HashMap<Integer,String> suffix( final String s ) throws Exception {
+		if ( s.length() == 0 ) return null;
+		final ArcLabelledImmutableGraph graph = graphlist[ new_search.find_file( s, graphbounds ) ];
+		final int node = new_search.full_match( graph, alphabet, s, true );
+		if ( node == 0 ) return null;
+		final int d = graph.outdegree( node );
+		final Label[] label = graph.labelArray( node );
+		final HashMap<Integer,String> result = new HashMap<Integer,String>();
+		// The first successor of a non-root node is its parent.
+		for( int i = 1; i < d; i++ ) {
+			final int l = label[ i ].getInt();
+			if ( TitleAlphabet.isLeaf( l ) ) result.put( Integer.valueOf( TitleAlphabet.id( l ) ), s );
+		}
+		return result.isEmpty() ? null : result;
+	}
+
+	/** Writes the word-start suffixes of the titles in a sorted database to a sorted suffix database.
+	 *
+	 * @param database the sorted title database (TAB-separated titles and page ids).
+	 * @param suffixes the sorted suffix database that will be written (TAB-separated suffixes and page ids).
+	 * @param batchSize the number of suffixes sorted in memory at a time.
+	 * @param tempDir the directory for sorted batches.
+	 */
+	public static void writeSuffixes( final File database, final File suffixes, final int batchSize, final File tempDir ) throws IOException {
+		final ObjectArrayList<File> batches = new ObjectArrayList<File>();
+		final String[] batch = new String[ batchSize ];
+		int size = 0;
+
+		final BufferedReader br = new BufferedReader( new InputStreamReader( new FileInputStream( database ) ) );
+		String line;
+		while( ( line = br.readLine() ) != null ) {
+			final int tab = line.lastIndexOf( '\t' );
+			if ( tab == -1 ) continue;
+			final String title = line.substring( 0, tab ).trim().replace( ' ', '_' ), id = line.substring( tab + 1 );
+			int start = 0;
+			do {
+				if ( start < title.length() && title.charAt( start ) != '_' ) {
+					if ( size == batchSize ) {
+						batches.add( spill( batch, size, tempDir ) );
+						size = 0;
+					}
+					batch[ size++ ] = main_modify_database.modify( title.substring( start ) ) + '\t' + id;
+				}
+				start = title.indexOf( '_', start ) + 1;
+			} while( start != 0 );
+		}
+		br.close();
+		if ( size != 0 ) batches.add( spill( batch, size, tempDir ) );
+
+		merge( batches, suffixes );
+		for( File f : batches ) f.delete();
+	}
+
+	/** Sorts a batch of suffixes and writes it to a temporary file. */
+	private static File spill( final String[] batch, final int size, final File tempDir ) throws IOException {
+		Arrays.sort( batch, 0, size );
+		final File f = File.createTempFile( InfixSearch.class.getSimpleName(), ".batch", tempDir );
+		f.deleteOnExit();
+		final BufferedWriter bw = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( f ) ) );
+		for( int i = 0; i < size; i++ ) {
+			bw.write( batch[ i ] );
+			bw.newLine();
+		}
+		bw.close();
+		return f;
+	}
+
+	/** A sorted batch being merged, with its current line. */
+	private final static class Batch implements Comparable<Batch> {
+		private final BufferedReader reader;
+		private String line;
+
+		private Batch( final File f ) throws IOException {
+			reader = new BufferedReader( new InputStreamReader( new FileInputStream( f ) ) );
+			line = reader.readLine();
+		}
+
+		public int compareTo( final Batch b ) {
+			return line.compareTo( b.line );
+		}
+	}
+
+	/** Merges sorted batches, dropping duplicate lines. */
+	private static void merge( final ObjectArrayList<File> batches, final File suffixes ) throws IOException {
+		final PriorityQueue<Batch> queue = new PriorityQueue<Batch>();
+		for( File f : batches ) {
+			final Batch b = new Batch( f );
+			if ( b.line != null ) queue.add( b );
+			else b.reader.close();
+		}
+
+		final BufferedWriter bw = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( suffixes ) ) );
+		String last = null;
+		while( ! queue.isEmpty() ) {
+			final Batch b = queue.poll();
+			if ( ! b.line.equals( last ) ) {
+				bw.write( b.line );
+				bw.newLine();
+				last = b.line;
+			}
+			if ( ( b.line = b.reader.readLine() ) != null ) queue.add( b );
+			else b.reader.close();
+		}
+		bw.close();
+	}
+
+	/** Builds an infix index.
+	 *
+	 * <p>The sorted suffix database is written to <code>{@value #SUFFIX_DATABASE}.txt</code> in <code>dir</code>, and then
+	 * split and compressed into suffix trees by {@link main_graphgen#build(File, String)} and
+	 * {@link IntegerTriplesArcLabelledImmutableGraph#compress(File)}, exactly as it happens for titles.
+	 *
+	 * @param databaseDir the directory containing the sorted title database.
+	 * @param basename the basename of the sorted title database (e.g., <samp>Database_sorted</samp>).
+	 * @param dir the directory of the infix index; it must be different from <code>databaseDir</code>, as
+	 * both will contain a <code>log.txt</code> file.
+	 * @param batchSize the number of suffixes sorted in memory at a time.
+	 */
+	public static void build( final File databaseDir, final String basename, final File dir, final int batchSize ) throws Exception {
+		if ( databaseDir.getCanonicalFile().equals( dir.getCanonicalFile() ) ) throw new IllegalArgumentException( "The infix index must be built in a separate directory" );
+		if ( ! dir.exists() && ! dir.mkdirs() ) throw new IOException( "Cannot create directory " + dir );
+		writeSuffixes( new File( databaseDir, basename + ".txt" ), new File( dir, SUFFIX_DATABASE + ".txt" ), batchSize, dir );
+		main_graphgen.build( dir, SUFFIX_DATABASE );
+		IntegerTriplesArcLabelledImmutableGraph.compress( dir );
+	}
+
+	/** Builds the infix index of <samp>Database_sorted.txt</samp> in the directory given as argument, unless it
+	 * already exists, and then answers the patterns given as further arguments. */
+	public static void main( final String[] arg ) throws Exception {
+		if ( arg.length == 0 ) {
+			System.err.println( "Usage: " + InfixSearch.class.getName() + " INDEXDIR [PATTERN...]" );
+			System.exit( 1 );
+		}
+		final File dir = new File( arg[ 0 ] );
+		if ( ! new File( dir, "log.txt" ).exists() ) build( new File( "." ), "Database_sorted", dir, DEFAULT_BATCH_SIZE );
+
+		final InfixSearch infixSearch = new InfixSearch( dir );
+		for( int i = 1; i < arg.length; i++ ) {
+			final HashMap<Integer,String> result = infixSearch.search( arg[ i ] );
+			if ( result == null ) System.out.println( arg[ i ] + ": no matches found" );
+			else for( Map.Entry<Integer,String> e : result.entrySet() ) System.out.println( "Id: " + e.getKey() + " Match: " + e.getValue() );
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package it.unimi.dsi.webgraph.examples;
+
+import it.unimi.dsi.Util;
+import it.unimi.dsi.logging.ProgressLogger;
+import it.unimi.dsi.webgraph.BVGraph;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableGraph;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableSequentialGraph;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledNodeIterator;
+import it.unimi.dsi.webgraph.labelling.BitStreamArcLabelledImmutableGraph;
+import it.unimi.dsi.webgraph.labelling.GammaCodedIntLabel;
+import it.unimi.dsi.webgraph.labelling.Label;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.log4j.Logger;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+/** An {@link ArcLabelledImmutableGraph} exposing a stream of TAB-separated triples, built in a single pass with bounded memory.
+ *
+ * <p>The triples are interpreted as in {@link IntegerTriplesArcLabelledImmutableGraph}: the first element is the source,
+ * the second element is the target, and the third element is a nonnegative integer label that will be saved using a
+ * {@link GammaCodedIntLabel}. However, whereas {@link IntegerTriplesArcLabelledImmutableGraph} needs all triples in memory as
+ * an array of arrays (more than 40 bytes per arc), the constructor of this class parses the stream directly from its bytes into
+ * three arrays of integers of fixed size (12 bytes per arc). When the arrays are full they are radix-sorted and
+ * written to disk as a batch, as in {@link it.unimi.dsi.webgraph.Transform#processBatch(int, int[], int[], File, java.util.List)}, and
+ * the {@linkplain #nodeIterator() node iterator} merges the batches on the fly. So the graph can be passed directly to
+ * {@link BVGraph#store(it.unimi.dsi.webgraph.ImmutableGraph, CharSequence)} and
+ * {@link BitStreamArcLabelledImmutableGraph#store(ArcLabelledImmutableGraph, CharSequence, CharSequence)}, which is
+ * what {@link #store(InputStream, CharSequence, int, File, ProgressLogger)} does, and the memory used depends only on the batch size.
+ *
+ * <p>The number of nodes is the largest index appearing in a triple plus one. If several triples have the same source and target,
+ * only the one with the smallest label is kept. Lines that do not contain three nonnegative integers are skipped with a warning.
+ */
+
+public class IntegerTriplesASCIIGraph extends ArcLabelledImmutableSequentialGraph {
+	private static final Logger LOGGER = Util.getLogger( IntegerTriplesASCIIGraph.class );
+
+	/** The default batch size. */
+	public static final int DEFAULT_BATCH_SIZE = 1000000;
+
+	/** The sorted batches of triples. */
+	private final TripleBatches batches;
+	/** The prototype of the labels used by this class. */
+	private final GammaCodedIntLabel prototype;
+	/** The number of nodes. */
+	private final int n;
+
+	/** Creates an arc-labelled graph from a stream of TAB-separated triples.
+	 *
+	 * @param is an input stream containing TAB-separated triples, one per line.
+	 * @param batchSize the number of triples in a batch; three arrays of integers of this size will be allocated.
+	 * @param tempDir a temporary directory for the batches, or <code>null</code> for {@link File#createTempFile(java.lang.String, java.lang.String)}'s choice.
+	 * @param pl a progress logger, or <code>null</code>.
+	 */
+	public IntegerTriplesASCIIGraph( final InputStream is, final int batchSize, final File tempDir, final ProgressLogger pl ) throws IOException {
+		prototype = new GammaCodedIntLabel( "A", 16 );
+		batches = new TripleBatches( tempDir, 0, TripleBatches.MIN );
+		final FieldReader fieldReader = new FieldReader( is );
+		final int[] field = fieldReader.field;
+		final int[][] triple = new int[ 3 ][ batchSize ];
+		final int[] source = triple[ 0 ], target = triple[ 1 ], label = triple[ 2 ];
+
+		if ( pl != null ) {
+			pl.itemsName = "triples";
+			pl.start( "Parsing triples..." );
+		}
+
+		int m = -1, j = 0, fields;
+		long lines = 0, skipped = 0;
+		while( ( fields = fieldReader.readLine() ) != -1 ) {
+			lines++;
+			if ( pl != null ) pl.lightUpdate();
+			if ( fields < 3 || field[ 0 ] < 0 || field[ 1 ] < 0 || field[ 2 ] < 0 ) {
+				if ( skipped++ < 10 ) LOGGER.warn( "Skipping malformed line " + lines );
+				continue;
+			}
+
+			m = Math.max( m, Math.max( source[ j ] = field[ 0 ], target[ j ] = field[ 1 ] ) );
+			label[ j++ ] = field[ 2 ];
+			if ( j == batchSize ) {
+				batches.add( j, triple );
+				j = 0;
+			}
+		}
+		if ( j != 0 ) batches.add( j, triple );
+		fieldReader.close();
+		n = m + 1;
+
+		if ( pl != null ) {
+			pl.done();
+			pl.logger.info( "Created " + batches.batches.size() + " batches for " + n + " nodes" + ( skipped != 0 ? " (" + skipped + " malformed lines skipped)" : "" ) );
+		}
+	}
+
+	@Override
+	public Label prototype() {
+		return prototype;
+	}
+
+	@Override
+	public int numNodes() {
+		return n;
+	}
+
+	@Override
+	public ArcLabelledNodeIterator nodeIterator() {
+		final TripleBatches.Merger merger = batches.merger();
+
+		return new ArcLabelledNodeIterator() {
+			/** The last returned node. */
+			private int last = -1;
+			/** The outdegree of the current node (valid if {@link #last} is not -1). */
+			private int outdegree;
+
+			@Override
+			public int outdegree() {
+				if ( last == -1 ) throw new IllegalStateException();
+				return outdegree;
+			}
+
+			public boolean hasNext() {
+				return last < n - 1;
+			}
+
+			@Override
+			public int nextInt() {
+				outdegree = merger.successors( ++last );
+				return last;
+			}
+
+			@Override
+			public int[] successorArray() {
+				if ( last == -1 ) throw new IllegalStateException();
+				return merger.successor;
+			}
+
+			@Override
+			public ArcLabelledNodeIterator.LabelledArcIterator successors() {
+				if ( last == -1 ) throw new IllegalStateException();
+				return new TripleBatches.ArcIterator( merger.successor, merger.label, outdegree, prototype.copy() );
+			}
+		};
+	}
+
+	/** Stores the graph described by a stream of TAB-separated triples using {@link BVGraph} and {@link BitStreamArcLabelledImmutableGraph}.
+	 *
+	 * @param is an input stream containing TAB-separated triples, one per line.
+	 * @param basename the basename of the output graph.
+	 * @param batchSize the number of triples in a batch.
+	 * @param tempDir a temporary directory for the batches, or <code>null</code>.
+	 * @param pl a progress logger, or <code>null</code>.
+	 */
+	public static void store( final InputStream is, final CharSequence basename, final int batchSize, final File tempDir, final ProgressLogger pl ) throws IOException {
+		final IntegerTriplesASCIIGraph graph = new IntegerTriplesASCIIGraph( is, batchSize, tempDir, pl );
+		if ( pl != null && graph.batches.batches.size() > 1 ) pl.logger.info( "Merging " + graph.batches.triples + " triples from " + graph.batches.batches.size() + " batches" );
+		BVGraph.store( graph, basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX, pl );
+		BitStreamArcLabelledImmutableGraph.store( graph, basename, basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX, pl );
+		graph.batches.delete();
+	}
+
+	public static void main( String args[] ) throws IOException, JSAPException {
+		SimpleJSAP jsap = new SimpleJSAP( IntegerTriplesASCIIGraph.class.getName(), "Reads a list of triples <source,dest,label>, where the three " +
+				"components are separated by a TAB, and saves the corresponding arc-labelled graph using a BVGraph and a BitStreamArcLabelledImmutableGraph. " +
+				"Labels are represented using GammaCodedIntLabel.",
+				new Parameter[] {
+						new FlaggedOption( "logInterval", JSAP.LONG_PARSER, Long.toString( ProgressLogger.DEFAULT_LOG_INTERVAL ), JSAP.NOT_REQUIRED, 'l', "log-interval", "The minimum time interval between activity logs in milliseconds." ),
+						new FlaggedOption( "batchSize", JSAP.INTSIZE_PARSER, Integer.toString( DEFAULT_BATCH_SIZE ), JSAP.NOT_REQUIRED, 's', "batch-size", "The maximum size of a batch, in triples." ),
+						new FlaggedOption( "tempDir", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, 'T', "temp-dir", "A directory for all temporary batch files." ),
+						new FlaggedOption( "input", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, 'i', "input", "The triple file (default: standard input)." ),
+						new UnflaggedOption( "basename", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The basename of the output graph." ),
+					}
+				);
+
+		JSAPResult jsapResult = jsap.parse( args );
+		if ( jsap.messagePrinted() ) System.exit( 1 );
+
+		final File tempDir = jsapResult.userSpecified( "tempDir" ) ? new File( jsapResult.getString( "tempDir" ) ) : null;
+		final InputStream is = jsapResult.userSpecified( "input" ) ? new FileInputStream( jsapResult.getString( "input" ) ) : System.in;
+		final ProgressLogger pl = new ProgressLogger( LOGGER, jsapResult.getLong( "logInterval" ) );
+		store( is, jsapResult.getString( "basename" ), jsapResult.getInt( "batchSize" ), tempDir, pl );
+	}
+}
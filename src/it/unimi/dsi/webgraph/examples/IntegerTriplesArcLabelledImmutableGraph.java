@@ -18,11 +18,13 @@ package it.unimi.dsi.webgraph.examples;
  *
  */
 
+import it.unimi.dsi.Util;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.logging.ProgressLogger;
 import it.unimi.dsi.webgraph.AbstractLazyIntIterator;
 import it.unimi.dsi.webgraph.BVGraph;
 import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableGraph;
-import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableSequentialGraph;
 import it.unimi.dsi.webgraph.labelling.ArcLabelledNodeIterator;
 import it.unimi.dsi.webgraph.labelling.BitStreamArcLabelledImmutableGraph;
 import it.unimi.dsi.webgraph.labelling.GammaCodedIntLabel;
@@ -32,10 +34,14 @@ import it.unimi.dsi.webgraph.labelling.ArcLabelledNodeIterator.LabelledArcIterat
 import java.io.BufferedReader;
 //import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.log4j.Logger;
+
+import com.martiansoftware.jsap.FlaggedOption;
 import com.martiansoftware.jsap.JSAP;
 //import com.martiansoftware.jsap.JSAPException;
 import com.martiansoftware.jsap.JSAPException;
@@ -45,25 +51,36 @@ import com.martiansoftware.jsap.SimpleJSAP;
 import com.martiansoftware.jsap.UnflaggedOption;
 import it.unimi.dsi.webgraph.ImmutableGraph;
 //import it.unimi.dsi.webgraph.labelling.GammaCodedIntLabel;
-import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 
 /** A class exposing a list of triples as an {@link ArcLabelledImmutableGraph}. The triples are
  * interpreted as labelled arcs: the first element is the source, the second element is the target,
  * and the third element must be a nonnegative integer that will be saved using a {@link GammaCodedIntLabel}.
  * 
- * <p>This class is mainly a useful example of how to expose of your data <i>via</i> an {@link ArcLabelledImmutableGraph}, and
- * it is also used to build test cases, but it is not efficient or particularly refined.
+ * <p>Triples are stored in columnar form: they are radix-sorted by source and target, the targets and the labels
+ * are kept in two arrays of integers, and the sources are replaced by an array of offsets, in which the arcs
+ * going out of node <var>x</var> are those between <code>offset[x]</code> (inclusive) and <code>offset[x + 1]</code> (exclusive).
+ * Thus, this class provides random access, and {@link #outdegree(int)} is a difference of offsets, so that
+ * small-to-medium typed graphs can be queried directly, without compressing them first; the memory used is 8 bytes per arc and 4 bytes per node.
  * 
- * <p>A main method reads from standard input a list of TAB-separated triples and writes the corresponding graph
- * using {@link BVGraph} and {@link BitStreamArcLabelledImmutableGraph}.
+ * <p>A main method compresses in parallel a set of files of TAB-separated triples, writing the corresponding graphs
+ * using {@link BVGraph} and {@link BitStreamArcLabelledImmutableGraph}. To that purpose, triples are streamed
+ * through an {@link IntegerTriplesASCIIGraph}, and not loaded in memory.
  */
 
-public class IntegerTriplesArcLabelledImmutableGraph extends ArcLabelledImmutableSequentialGraph {
-	/** The list of triples. */
-	final private int[][] triple;
+public class IntegerTriplesArcLabelledImmutableGraph extends ArcLabelledImmutableGraph {
+	private static final Logger LOGGER = Util.getLogger( IntegerTriplesArcLabelledImmutableGraph.class );
+	/** The targets of the arcs, sorted by source and target. */
+	final private int[] successor;
+	/** The labels of the arcs, in the same order as {@link #successor}. */
+	final private int[] label;
+	/** The offsets in {@link #successor} and {@link #label} of the arcs going out of each node, followed by the number of arcs. */
+	final private int[] offset;
 	/** The prototype of the labels used by this class. */
 	final private GammaCodedIntLabel prototype;
 	/** The number of nodes, computed at construction time by triple inspection. */
@@ -79,21 +96,65 @@ public class IntegerTriplesArcLabelledImmutableGraph extends ArcLabelledImmutabl
 	 * order is not relevant, but multiple arcs are not allowed.
 	 */
 	public IntegerTriplesArcLabelledImmutableGraph( int[][] triple ) {
-		this.triple = triple;
+		this( column( triple, 0 ), column( triple, 1 ), column( triple, 2 ), triple.length );
+	}
+
+	/** Creates a new arc-labelled immutable graph using a specified list of triples in columnar form.
+	 * 
+	 * <p>The number of nodes is computed as in {@link #IntegerTriplesArcLabelledImmutableGraph(int[][])}. The first
+	 * <code>length</code> elements of the given arrays will be sorted in place; <code>target</code> and <code>label</code> will be used as
+	 * columns of this graph if their length is <code>length</code>, and copied otherwise.
+	 * 
+	 * @param source the sources of the arcs.
+	 * @param target the targets of the arcs.
+	 * @param label the labels of the arcs, which must be nonnegative.
+	 * @param length the number of arcs; order is not relevant, but multiple arcs are not allowed.
+	 */
+	public IntegerTriplesArcLabelledImmutableGraph( final int[] source, final int[] target, final int[] label, final int length ) {
 		prototype = new GammaCodedIntLabel( "A", 16 );
-		int m = 0;
-		for( int i = 0; i < triple.length; i++ ) m = Math.max( m, Math.max( triple[ i ][ 0 ], triple[ i ][ 1 ] ) );
-		Arrays.sort( triple, new Comparator<int[]>() {
-			public int compare( int[] p, int[] q ) {
-				final int t =  p[ 0 ] - q[ 0 ]; // Compare by source
-				if ( t != 0 ) return t;
-				return p[ 1 ] - q[ 1 ]; // Compare by destination
-			}
-		} );
-		
+		IntArrays.radixSort( new int[][] { source, target, label }, 0, length );
+		int m = -1;
+		for( int i = 0; i < length; i++ ) {
+			if ( source[ i ] < 0 || target[ i ] < 0 ) throw new IllegalArgumentException( "Negative node in triple " + i + ": <" + source[ i ] + ", " + target[ i ] + ">" );
+			if ( label[ i ] < 0 ) throw new IllegalArgumentException( "Negative label in triple " + i + ": " + label[ i ] );
+			if ( i != 0 && source[ i ] == source[ i - 1 ] && target[ i ] == target[ i - 1 ] ) throw new IllegalArgumentException( "Multiple arcs from " + source[ i ] + " to " + target[ i ] );
+			m = Math.max( m, Math.max( source[ i ], target[ i ] ) );
+		}
 		n = m + 1;
+
+		successor = target.length == length ? target : IntArrays.copy( target, 0, length );
+		this.label = label.length == length ? label : IntArrays.copy( label, 0, length );
+		offset = new int[ n + 1 ];
+		// We count the outdegrees, and then turn them into offsets
+		for( int i = 0; i < length; i++ ) offset[ source[ i ] + 1 ]++;
+		for( int x = 0; x < n; x++ ) offset[ x + 1 ] += offset[ x ];
 	}
-	
+
+	private IntegerTriplesArcLabelledImmutableGraph( final IntegerTriplesArcLabelledImmutableGraph graph ) {
+		successor = graph.successor;
+		label = graph.label;
+		offset = graph.offset;
+		prototype = graph.prototype;
+		n = graph.n;
+	}
+
+	/** Returns a column of a list of triples.
+	 * 
+	 * @param triple a list of triples.
+	 * @param c the index of a column.
+	 * @return a newly allocated array containing the element of index <code>c</code> of each triple.
+	 */
+	private static int[] column( final int[][] triple, final int c ) {
+		final int[] column = new int[ triple.length ];
+		for( int i = triple.length; i-- != 0; ) column[ i ] = triple[ i ][ c ];
+		return column;
+	}
+
+	@Override
+	public IntegerTriplesArcLabelledImmutableGraph copy() {
+		return new IntegerTriplesArcLabelledImmutableGraph( this );
+	}
+
 	@Override
 	public Label prototype() {
 		return prototype;
@@ -105,58 +166,105 @@ public class IntegerTriplesArcLabelledImmutableGraph extends ArcLabelledImmutabl
 	}
 
 	@Override
-	public ArcLabelledNodeIterator nodeIterator( int from ) {
-		if ( from == 0 ) return nodeIterator();
-		throw new UnsupportedOperationException();
+	public long numArcs() {
+		return offset[ n ];
+	}
+
+	@Override
+	public boolean randomAccess() {
+		return true;
+	}
+
+	@Override
+	public int outdegree( final int x ) {
+		return offset[ x + 1 ] - offset[ x ];
+	}
+
+	@Override
+	public int[] successorArray( final int x ) {
+		return IntArrays.copy( successor, offset[ x ], offset[ x + 1 ] - offset[ x ] );
+	}
+
+	@Override
+	public int successors( final int x, final int[] buffer ) {
+		final int d = offset[ x + 1 ] - offset[ x ];
+		if ( buffer.length < d ) throw new IllegalArgumentException( "The buffer length (" + buffer.length + ") is smaller than the outdegree of node " + x + " (" + d + ")" );
+		System.arraycopy( successor, offset[ x ], buffer, 0, d );
+		return d;
+	}
+
+	@Override
+	public Label[] labelArray( final int x ) {
+		final Label[] result = new Label[ offset[ x + 1 ] - offset[ x ] ];
+		for( int i = result.length; i-- != 0; ) result[ i ] = new GammaCodedIntLabel( prototype.wellKnownAttributeKey(), label[ offset[ x ] + i ] );
+		return result;
+	}
+
+	@Override
+	public LabelledArcIterator successors( final int x ) {
+		return new ArcIterator( offset[ x ], offset[ x + 1 ], prototype.copy() );
 	}
 
 	private final class ArcIterator extends AbstractLazyIntIterator implements LabelledArcIterator  {
-		private final int d;
-		private int k = 0; // Index of the last returned triple is pos+k
-		private final int pos;
+		/** The start and the end of the arcs to be returned. */
+		private final int from, to;
+		/** The index of the next arc to be returned. */
+		private int pos;
 		private final GammaCodedIntLabel label;
 
-		private ArcIterator( int d, int pos, GammaCodedIntLabel label ) {
-			this.d = d;
-			this.pos = pos;
+		private ArcIterator( final int from, final int to, final GammaCodedIntLabel label ) {
+			this.from = pos = from;
+			this.to = to;
 			this.label = label;
 		}
 
 		public Label label() {
-			if ( k == 0 ) throw new IllegalStateException();
-			label.value = triple[ pos + k ][ 2 ];
+			if ( pos == from ) throw new IllegalStateException();
+			label.value = IntegerTriplesArcLabelledImmutableGraph.this.label[ pos - 1 ];
 			return label;
 		}
 
 		public int nextInt() {
-			if ( k >= d ) return -1;
-			return triple[ pos + ++k ][ 1 ];
+			if ( pos == to ) return -1;
+			return successor[ pos++ ];
+		}
+
+		@Override
+		public int skip( final int k ) {
+			final int s = Math.min( k, to - pos );
+			pos += s;
+			return s;
 		}
 	}
 
 	@Override
-	public ArcLabelledNodeIterator nodeIterator() {
+	public ArcLabelledNodeIterator nodeIterator( final int from ) {
 		return new ArcLabelledNodeIterator() {
 			/** Last node returned by this iterator. */
-			private int last = -1;
-			/** Last triple examined by this iterator. */
-			private int pos = -1;
-			/** A local copy of the prototye. */
-			private GammaCodedIntLabel label = (GammaCodedIntLabel) prototype.copy();
+			private int last = from - 1;
 
 			@Override
 			public LabelledArcIterator successors() {
-				if ( last < 0 ) throw new IllegalStateException();
-				final int d = outdegree(); // Triples to be returned are pos+1,pos+2,...,pos+d 
-				return new ArcIterator( d, pos, label );
+				if ( last < from ) throw new IllegalStateException();
+				return IntegerTriplesArcLabelledImmutableGraph.this.successors( last );
 			}
 
 			@Override
 			public int outdegree() {
-				if ( last < 0 ) throw new IllegalStateException();
-				int p;
-				for ( p = pos + 1; p < triple.length && triple[ p ][ 0 ] == last; p++ );
-				return p - pos - 1;
+				if ( last < from ) throw new IllegalStateException();
+				return IntegerTriplesArcLabelledImmutableGraph.this.outdegree( last );
+			}
+
+			@Override
+			public int[] successorArray() {
+				if ( last < from ) throw new IllegalStateException();
+				return IntegerTriplesArcLabelledImmutableGraph.this.successorArray( last );
+			}
+
+			@Override
+			public Label[] labelArray() {
+				if ( last < from ) throw new IllegalStateException();
+				return IntegerTriplesArcLabelledImmutableGraph.this.labelArray( last );
 			}
 
 			public boolean hasNext() {
@@ -166,7 +274,6 @@ public class IntegerTriplesArcLabelledImmutableGraph extends ArcLabelledImmutabl
 			@Override
 			public int nextInt() {
 				if ( !hasNext() ) throw new NoSuchElementException();
-				if ( last >= 0 ) pos += outdegree();
 				return ++last;
 			}
 			
@@ -209,50 +316,168 @@ public class IntegerTriplesArcLabelledImmutableGraph extends ArcLabelledImmutabl
 		BVGraph.store( g, basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX );
 		BitStreamArcLabelledImmutableGraph.store( g, basename, basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX );
 	}*/
-        public static void main( String arg[] ) throws Exception {
-            File directory = new File (".");
-            //System.out.println ("Current directory's canonical path: " + directory.getCanonicalPath());
-            //System.out.println ("Current directory's absolute  path: " + directory.getAbsolutePath());
-            String[] listoffiles = directory.list();
-            String basename;
-            
-            for(int i=0;i<listoffiles.length;i++){
-                //System.out.println(listoffiles[i]+"and this is the result of the test"+list[i].endsWith(".txt"));
-                if(!listoffiles[i].endsWith(".txt"))
-                    continue;
-                else if(!listoffiles[i].startsWith("db"))
-                    continue;
-                
-                basename = listoffiles[i];
-                int j = basename.indexOf(".");
-                basename = basename.substring(0, j);
-                FileInputStream fstream = new FileInputStream(basename+".txt");
-                //System.out.println("reach 1");
-                DataInputStream in = new DataInputStream(fstream);
-		BufferedReader br = new BufferedReader( new InputStreamReader( in ) );
-                System.out.println("It has started writing");
-		ObjectArrayList<int[]> list = new ObjectArrayList<int[]>();
-                //ObjectArrayList<int[]> list_rel = new ObjectArrayList<int[]>();
-		String line;//, arg2;
-                //int charint;
-                int log=0;
+	/** The name of the manifest written by {@link #compress(File)} in the directory of the shards. */
+	public static final String MANIFEST = "manifest.txt";
+	/** The number of bytes used by each triple in a batch of an {@link IntegerTriplesASCIIGraph}. */
+	private static final int BYTES_PER_TRIPLE = 3 * Integer.SIZE / Byte.SIZE;
+	/** The minimum batch size used when the memory budget is tight. */
+	private static final int MIN_BATCH_SIZE = 16 * 1024;
+
+	public static void main( String arg[] ) throws JSAPException, IOException {
+		final SimpleJSAP jsap = new SimpleJSAP( IntegerTriplesArcLabelledImmutableGraph.class.getName(),
+				"Compresses in parallel the triple files db*.txt in a directory, saving each shard using a BVGraph and a BitStreamArcLabelledImmutableGraph " +
+				"with the same basename. Labels are represented using GammaCodedIntLabel. A manifest of the shards, with their size and compression time, is written in " + MANIFEST + ".",
+				new Parameter[] {
+						new FlaggedOption( "threads", JSAP.INTEGER_PARSER, Integer.toString( Runtime.getRuntime().availableProcessors() ), JSAP.NOT_REQUIRED, 't', "threads", "The maximum number of shards compressed at the same time." ),
+						new FlaggedOption( "memory", JSAP.LONGSIZE_PARSER, Long.toString( Runtime.getRuntime().maxMemory() / 2 ), JSAP.NOT_REQUIRED, 'm', "memory", "The memory budget for the batches of all shards being compressed." ),
+						new UnflaggedOption( "dir", JSAP.STRING_PARSER, ".", JSAP.NOT_REQUIRED, JSAP.NOT_GREEDY, "The directory containing the triple files." ),
+					}
+				);
+
+		final JSAPResult jsapResult = jsap.parse( arg );
+		if ( jsap.messagePrinted() ) System.exit( 1 );
+
+		final File dir = new File( jsapResult.getString( "dir" ) );
+		final ObjectArrayList<String> basenames = new ObjectArrayList<String>();
+		for( String filename : dir.list() ) {
+			if ( ! filename.startsWith( "db" ) || ! filename.endsWith( ".txt" ) ) continue;
+			basenames.add( new File( dir, filename.substring( 0, filename.indexOf( '.' ) ) ).getPath() );
+		}
+		compress( basenames.toArray( new String[ basenames.size() ] ), jsapResult.getInt( "threads" ), jsapResult.getLong( "memory" ), new File( dir, MANIFEST ) );
+	}
+
+        
+        /** Reads the TAB-separated triples in <code>basename.txt</code> and stores the corresponding arc-labelled
+         * graph with the same basename using {@link BVGraph} and {@link BitStreamArcLabelledImmutableGraph}.
+         * 
+         * <p>Triples are not loaded in memory: they are streamed through an {@link IntegerTriplesASCIIGraph}, which
+         * sorts them in batches of {@link IntegerTriplesASCIIGraph#DEFAULT_BATCH_SIZE} triples.
+         * 
+         * @param basename the basename of the triple file, which will be also the basename of the resulting graph.
+         */
+        public static void compress( final String basename ) throws IOException {
+		IntegerTriplesASCIIGraph.store( new FileInputStream( basename + ".txt" ), basename, IntegerTriplesASCIIGraph.DEFAULT_BATCH_SIZE, null, null );
+	}
+
+	/** The outcome of the compression of a shard, as recorded in the manifest. */
+	private final static class Shard {
+		/** The basename of the shard. */
+		private final String basename;
+		private int numNodes;
+		private long numArcs;
+		/** The number of bytes of the underlying graph and of the labels. */
+		private long graphBytes, labelBytes;
+		/** The compression time in milliseconds. */
+		private long millis;
+		/** The exception thrown while compressing the shard, or <code>null</code>. */
+		private Throwable error;
+
+		private Shard( final String basename ) {
+			this.basename = basename;
+		}
+	}
+
+	/** Compresses several triple files in parallel, and writes a manifest of the compressed shards.
+	 *
+	 * <p>Each file is compressed as in {@link #compress(String)} by a pool of at most <code>threads</code> workers. Since each
+	 * worker needs {@value #BYTES_PER_TRIPLE} bytes per triple of its batch, the number of workers is further limited
+	 * so that batches of {@link IntegerTriplesASCIIGraph#DEFAULT_BATCH_SIZE} triples fit into <code>memory</code> bytes; if even
+	 * a single such batch does not fit, smaller batches are used. While compressing a shard, a worker takes the basename of the shard as its name, so that log lines are tagged with it.
+	 *
+	 * <p>The manifest is a TAB-separated text file with a line for each shard, in the order of <code>basename</code>, containing
+	 * the basename, the number of nodes and arcs, the number of bytes of the underlying graph and of the labels, and the compression time in milliseconds.
+	 * If the compression of a shard fails, the line contains the basename followed by <code>FAILED</code> and the exception message, and an exception
+	 * is thrown after all shards have been processed.
+	 *
+	 * @param basename the basenames of the triple files (without the <code>.txt</code> extension), which will be also the basenames of the resulting graphs.
+	 * @param threads the maximum number of shards compressed at the same time.
+	 * @param memory the memory budget, in bytes, for the batches of all shards being compressed.
+	 * @param manifest the manifest file, or <code>null</code>.
+	 */
+	public static void compress( final String[] basename, final int threads, final long memory, final File manifest ) throws IOException {
+		if ( threads <= 0 ) throw new IllegalArgumentException( "Invalid number of threads: " + threads );
+		final long batchBytes = (long)BYTES_PER_TRIPLE * IntegerTriplesASCIIGraph.DEFAULT_BATCH_SIZE;
+		final int workers = (int)Math.max( 1, Math.min( Math.min( threads, basename.length ), memory / batchBytes ) );
+		final int batchSize = (int)Math.max( MIN_BATCH_SIZE, Math.min( IntegerTriplesASCIIGraph.DEFAULT_BATCH_SIZE, memory / workers / BYTES_PER_TRIPLE ) );
+		LOGGER.info( "Compressing " + basename.length + " shards using " + workers + " threads and batches of " + batchSize + " triples" );
+
+		final Shard[] shard = new Shard[ basename.length ];
+		final ExecutorService executor = Executors.newFixedThreadPool( workers );
+		final long start = System.currentTimeMillis();
+		for( int i = 0; i < basename.length; i++ ) {
+			final Shard s = shard[ i ] = new Shard( basename[ i ] );
+			executor.execute( new Runnable() {
+				public void run() {
+					// The thread takes the name of the shard, so that all log lines of the shard are tagged with it
+					final String name = Thread.currentThread().getName();
+					Thread.currentThread().setName( s.basename );
+					final ProgressLogger pl = new ProgressLogger( LOGGER, ProgressLogger.TEN_SECONDS );
+					final long start = System.currentTimeMillis();
+					try {
+						IntegerTriplesASCIIGraph.store( new FileInputStream( s.basename + ".txt" ), s.basename, batchSize, null, pl );
+						final ImmutableGraph g = BVGraph.loadOffline( s.basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX );
+						s.numNodes = g.numNodes();
+						s.numArcs = g.numArcs();
+						s.graphBytes = new File( s.basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX + BVGraph.GRAPH_EXTENSION ).length() +
+								new File( s.basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX + BVGraph.OFFSETS_EXTENSION ).length();
+						s.labelBytes = new File( s.basename + BitStreamArcLabelledImmutableGraph.LABELS_EXTENSION ).length() +
+								new File( s.basename + BitStreamArcLabelledImmutableGraph.LABEL_OFFSETS_EXTENSION ).length();
+						s.millis = System.currentTimeMillis() - start;
+						LOGGER.info( "Compressed shard " + s.basename + " (" + s.numNodes + " nodes, " + s.numArcs + " arcs) in " + s.millis + " ms" );
+					}
+					catch( Throwable t ) {
+						s.error = t;
+						s.millis = System.currentTimeMillis() - start;
+						LOGGER.error( "Compression of shard " + s.basename + " failed", t );
+					}
+					finally {
+						Thread.currentThread().setName( name );
+					}
+				}
+			} );
+		}
+
+		executor.shutdown();
+		try {
+			while( ! executor.awaitTermination( 1, TimeUnit.MINUTES ) );
+		}
+		catch( InterruptedException e ) {
+			executor.shutdownNow();
+			throw new IOException( "Interrupted while compressing shards" );
+		}
+
+		int failed = 0;
+		for( Shard s : shard ) if ( s.error != null ) failed++;
+		LOGGER.info( "Compressed " + ( shard.length - failed ) + " shards in " + ( System.currentTimeMillis() - start ) + " ms" + ( failed != 0 ? " (" + failed + " failed)" : "" ) );
+
+		if ( manifest != null ) {
+			final PrintWriter pw = new PrintWriter( new OutputStreamWriter( new FileOutputStream( manifest ), "UTF-8" ) );
+			for( Shard s : shard ) {
+				if ( s.error != null ) pw.println( s.basename + "\tFAILED\t" + s.error );
+				else pw.println( s.basename + "\t" + s.numNodes + "\t" + s.numArcs + "\t" + s.graphBytes + "\t" + s.labelBytes + "\t" + s.millis );
+			}
+			pw.close();
+		}
+
+		if ( failed != 0 ) throw new IOException( "The compression of " + failed + " shards failed" );
+	}
+
+        
+        /** Compresses, using {@link #compress(String[], int, long, File)}, all triple files listed in the <code>log.txt</code> file
+         * written by {@link labelled_graphgen} in the given directory, with as many threads as available processors,
+         * a memory budget of half of the maximum heap size, and writing the manifest {@link #MANIFEST} in the same directory.
+         * 
+         * @param dir the directory containing the triple files and their <code>log.txt</code>.
+         */
+        public static void compress( final File dir ) throws IOException {
+		final BufferedReader br = new BufferedReader( new InputStreamReader( new FileInputStream( new File( dir, "log.txt" ) ) ) );
+		final ObjectArrayList<String> basenames = new ObjectArrayList<String>();
+		String line;
 		while( ( line = br.readLine() ) != null ) {
-                        //System.out.println(line);
-			log++;
-                        if  (log%400000==0)
-                            System.out.println("I am at line no. "+log);
-                        final String p[] = line.split( "\t" );
-                        //charint = (int)p[2].charAt(0);
-                        //arg2 = String.valueOf(charint);
-			list.add( new int[] { Integer.parseInt(  p[ 0 ] ),Integer.parseInt( p[ 1 ] ), Integer.parseInt(  p[2] ) } );
-                        
+			final String filename = line.split( "\t" )[ 0 ];
+			basenames.add( new File( dir, filename.substring( 0, filename.indexOf( '.' ) ) ).getPath() );
 		}
-                System.out.println("It has started building the graph");
-		
-		final ArcLabelledImmutableGraph g = new IntegerTriplesArcLabelledImmutableGraph( list.toArray( new int[0][] ) );
-		
-                BVGraph.store( g, basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX );
-		BitStreamArcLabelledImmutableGraph.store( g, basename, basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX );
-            }   
+		br.close();
+		compress( basenames.toArray( new String[ basenames.size() ] ), Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 2, new File( dir, MANIFEST ) );
 	}
 }
@@ -0,0 +1,137 @@
+package it.unimi.dsi.webgraph.examples;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.io.BinIO;
+import it.unimi.dsi.fastutil.longs.AbstractLongIterator;
+import it.unimi.dsi.sux4j.bits.SparseRank;
+import it.unimi.dsi.sux4j.bits.SparseSelect;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+
+/** A compact, monotone map from page ids to dense node numbers.
+ *
+ * <p>The node of a page is the rank of its page id among all page ids, so node order is page-id order. Page ids are
+ * stored as an Elias&ndash;Fano monotone list (a {@link SparseSelect}) with its associated {@link SparseRank}, which
+ * is the structure used for the offsets of a {@link it.unimi.dsi.webgraph.BVGraph}: a map of <var>n</var> page ids
+ * up to <var>u</var> occupies about 2 + log(<var>u</var>/<var>n</var>) bits per id, and both directions are a rank or
+ * a select, instead of a binary search over an array of ids.
+ */
+
+public class PageIdMap implements Serializable {
+	private static final long serialVersionUID = 0L;
+
+	/** The rank structure, mapping a page id to the number of smaller page ids. */
+	private final SparseRank rank;
+	/** The select structure, mapping a node to its page id. */
+	private final SparseSelect select;
+	/** The number of pages. */
+	private final int n;
+
+	/** Creates a map from a list of page ids.
+	 *
+	 * @param pageId a strictly increasing list of nonnegative page ids; <code>pageId[ i ]</code> will be mapped to node <code>i</code>.
+	 */
+	public PageIdMap( final int[] pageId ) {
+		this( pageId, pageId.length );
+	}
+
+	/** Creates a map from a prefix of a list of page ids.
+	 *
+	 * @param pageId a list of page ids, strictly increasing and nonnegative in its first <code>n</code> elements.
+	 * @param n the number of page ids.
+	 */
+	public PageIdMap( final int[] pageId, final int n ) {
+		for( int i = 1; i < n; i++ ) if ( pageId[ i - 1 ] >= pageId[ i ] ) throw new IllegalArgumentException( "Page ids are not strictly increasing at position " + i + ": " + pageId[ i - 1 ] + " >= " + pageId[ i ] );
+		if ( n != 0 && pageId[ 0 ] < 0 ) throw new IllegalArgumentException( "Negative page id: " + pageId[ 0 ] );
+		this.n = n;
+		rank = new SparseRank( n == 0 ? 0 : pageId[ n - 1 ] + 1L, n, new AbstractLongIterator() {
+			private int i;
+			public boolean hasNext() {
+				return i < n;
+			}
+			public long nextLong() {
+				return pageId[ i++ ];
+			}
+		} );
+		select = rank.getSelect();
+	}
+
+	/** Returns the node of a page.
+	 *
+	 * @param pageId a page id.
+	 * @return the node of <code>pageId</code>, or -1 if it is not in this map.
+	 */
+	public int node( final int pageId ) {
+		if ( pageId < 0 || pageId >= rank.numBits() ) return -1;
+		final int r = (int)rank.rank( pageId );
+		return r < n && select.select( r ) == pageId ? r : -1;
+	}
+
+	/** Returns the page id of a node.
+	 *
+	 * @param node a node.
+	 * @return the page id of <code>node</code>.
+	 */
+	public int pageId( final int node ) {
+		if ( node < 0 || node >= n ) throw new IndexOutOfBoundsException( "Node " + node + " out of range [0.." + n + ")" );
+		return (int)select.select( node );
+	}
+
+	/** Returns the number of pages in this map.
+	 *
+	 * @return the number of pages in this map.
+	 */
+	public int size() {
+		return n;
+	}
+
+	/** Returns the page ids in this map, in node order.
+	 *
+	 * @return a newly allocated array containing the page id of each node.
+	 */
+	public int[] toIntArray() {
+		final int[] a = new int[ n ];
+		for( int i = n; i-- != 0; ) a[ i ] = (int)select.select( i );
+		return a;
+	}
+
+	/** Stores the page ids of this map as a binary list of ints (see {@link BinIO#storeInts(int[], CharSequence)}).
+	 *
+	 * @param filename a file name.
+	 */
+	public void store( final CharSequence filename ) throws IOException {
+		BinIO.storeInts( toIntArray(), filename );
+	}
+
+	/** Loads a map stored by {@link #store(CharSequence)}.
+	 *
+	 * @param filename a file name.
+	 * @return the map.
+	 */
+	public static PageIdMap load( final CharSequence filename ) throws IOException {
+		return new PageIdMap( BinIO.loadInts( filename ) );
+	}
+
+	/** Loads a map from a text file containing one page id per line, in increasing order (the format of the mapping files written by {@link TypedEdgeGraph}).
+	 *
+	 * @param filename a file name.
+	 * @return the map.
+	 */
+	public static PageIdMap loadText( final CharSequence filename ) throws IOException {
+		final BufferedReader br = new BufferedReader( new InputStreamReader( new FileInputStream( filename.toString() ) ) );
+		int[] pageId = new int[ 1024 ];
+		int n = 0;
+		String line;
+		while( ( line = br.readLine() ) != null ) {
+			if ( ( line = line.trim() ).length() == 0 ) continue;
+			pageId = IntArrays.grow( pageId, n + 1 );
+			pageId[ n++ ] = Integer.parseInt( line );
+		}
+		br.close();
+		return new PageIdMap( pageId, n );
+	}
+}
@@ -0,0 +1,259 @@
+package it.unimi.dsi.webgraph.examples;
+
+import it.unimi.dsi.Util;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.logging.ProgressLogger;
+import it.unimi.dsi.webgraph.BVGraph;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableGraph;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableSequentialGraph;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledNodeIterator;
+import it.unimi.dsi.webgraph.labelling.BitStreamArcLabelledImmutableGraph;
+import it.unimi.dsi.webgraph.labelling.FixedWidthIntLabel;
+import it.unimi.dsi.webgraph.labelling.Label;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.log4j.Logger;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+/** An {@link ArcLabelledImmutableGraph} exposing the typed links of a PageLinks dump, built in a single pass.
+ *
+ * <p>A PageLinks dump is a TAB-separated text file in which a line with five fields (the second one being the page id of
+ * the source, the fourth one the page id of the destination and the fifth one the type of the link) starts a new source,
+ * and the following lines with three fields (the second one being the page id of the destination and the third one the type
+ * of the link) add further links from the same source.
+ *
+ * <p>The conversion used to be performed by {@link TypedEdgeGraph}, through four stages each one of which reads and writes
+ * a text file as large as the dump; moreover, the resulting triples had to be loaded in memory to be compressed. The
+ * constructor of this class, instead, parses the dump just once, directly from its bytes, and accumulates
+ * &lt;source, destination, type&gt; triples in a batch that, when full, is sorted, merged and written to disk
+ * as in {@link it.unimi.dsi.webgraph.Transform#processBatch(int, int[], int[], File, java.util.List)}. Meanwhile, the
+ * distinct page ids are collected: at the end of the pass they are sorted into a {@link PageIdMap}, and the node of a page is its
+ * rank among them, so node order is page-id order. The {@linkplain #nodeIterator() node iterator} merges the batches on the fly, so the graph can be
+ * passed directly to {@link BVGraph#store(it.unimi.dsi.webgraph.ImmutableGraph, CharSequence)} and
+ * {@link BitStreamArcLabelledImmutableGraph#store(ArcLabelledImmutableGraph, CharSequence, CharSequence)}, which is what the
+ * main method does. The memory used depends only on the batch size and on the number of pages.
+ *
+ * <p>Multiple links between the same pages are merged into a single arc, whose label is a {@linkplain #typeMask(int) mask} with one bit per link
+ * type, stored as a {@link FixedWidthIntLabel} of width {@link #TYPES}, so that labels can be read without any decoding. Loops are discarded,
+ * and so are (with a warning) lines that do not conform to the specification above, together with the three-field lines following a rejected five-field line.
+ */
+
+public class PageLinksGraph extends ArcLabelledImmutableSequentialGraph {
+	private static final Logger LOGGER = Util.getLogger( PageLinksGraph.class );
+
+	/** The default batch size. */
+	public static final int DEFAULT_BATCH_SIZE = 1000000;
+	/** The number of link types. */
+	public static final int TYPES = 20;
+	/** The extension of the identifier file (a binary list of ints, see {@link PageIdMap#store(CharSequence)}). */
+	public static final String IDS_EXTENSION = ".ids";
+
+	/** The map between page ids and nodes. */
+	public final PageIdMap ids;
+	/** The sorted batches of triples. */
+	private final TripleBatches batches;
+	/** The prototype of the labels used by this class. */
+	private final FixedWidthIntLabel prototype;
+
+	/** Creates an arc-labelled graph from a PageLinks dump.
+	 *
+	 * @param is an input stream containing a PageLinks dump.
+	 * @param batchSize the number of triples in a batch; three arrays of integers of this size will be allocated.
+	 * @param tempDir a temporary directory for the batches, or <code>null</code> for {@link File#createTempFile(java.lang.String, java.lang.String)}'s choice.
+	 * @param pl a progress logger, or <code>null</code>.
+	 */
+	public PageLinksGraph( final InputStream is, final int batchSize, final File tempDir, final ProgressLogger pl ) throws IOException {
+		prototype = new FixedWidthIntLabel( "types", TYPES );
+		batches = new TripleBatches( tempDir, TYPES, TripleBatches.OR );
+		final FieldReader fieldReader = new FieldReader( is );
+		final int[] field = fieldReader.field;
+		final int[][] triple = new int[ 3 ][ batchSize ];
+		final int[] source = triple[ 0 ], target = triple[ 1 ], label = triple[ 2 ];
+		// The page ids seen so far, with duplicates; compacted when full.
+		int[] pageId = new int[ 1024 ];
+		int pages = 0;
+
+		if ( pl != null ) {
+			pl.itemsName = "lines";
+			pl.start( "Parsing links..." );
+		}
+
+		int currSource = -1, j = 0, fields;
+		long lines = 0, skipped = 0;
+		while( ( fields = fieldReader.readLine() ) != -1 ) {
+			lines++;
+			if ( pl != null ) pl.lightUpdate();
+			final int s, d, t;
+			if ( fields == 5 ) {
+				s = field[ 1 ];
+				d = field[ 3 ];
+				t = field[ 4 ];
+			}
+			else if ( fields == 3 && currSource != -1 ) {
+				s = currSource;
+				d = field[ 1 ];
+				t = field[ 2 ];
+			}
+			else s = d = t = -1;
+
+			if ( s < 0 || d < 0 || t < 0 || t >= TYPES ) {
+				// The continuation lines of a rejected header line must be skipped, too, rather than credited to the previous page
+				if ( fields == 5 ) currSource = -1;
+				if ( skipped++ < 10 ) LOGGER.warn( "Skipping malformed line " + lines );
+				continue;
+			}
+			if ( pages + 2 > pageId.length ) {
+				pages = unique( pageId, pages );
+				if ( pages > pageId.length / 2 ) pageId = IntArrays.grow( pageId, pageId.length + 2 );
+			}
+			if ( s != currSource ) pageId[ pages++ ] = currSource = s;
+			if ( s == d ) continue;
+			pageId[ pages++ ] = d;
+
+			source[ j ] = s;
+			target[ j ] = d;
+			label[ j++ ] = typeMask( t );
+			if ( j == batchSize ) {
+				batches.add( j, triple );
+				j = 0;
+			}
+		}
+		if ( j != 0 ) batches.add( j, triple );
+		fieldReader.close();
+
+		ids = new PageIdMap( pageId, unique( pageId, pages ) );
+
+		if ( pl != null ) {
+			pl.done();
+			pl.logger.info( "Created " + batches.batches.size() + " batches for " + ids.size() + " pages" + ( skipped != 0 ? " (" + skipped + " lines skipped)" : "" ) );
+		}
+	}
+
+	/** Returns the bitmask representing a link type.
+	 *
+	 * <p>Type <var>t</var> sets bit {@link #TYPES}&nbsp;&minus;&nbsp;1&nbsp;&minus;&nbsp;<var>t</var>: this is the value that
+	 * {@link TypedEdgeGraph} used to obtain by parsing a binary string in which the <var>t</var>-th character is a one.
+	 *
+	 * @param type a link type.
+	 * @return the bitmask representing <code>type</code>.
+	 */
+	public static int typeMask( final int type ) {
+		if ( type < 0 || type >= TYPES ) throw new IllegalArgumentException( "Link type out of range: " + type );
+		return 1 << TYPES - 1 - type;
+	}
+
+	/** Sorts and removes duplicates from the first elements of an array.
+	 *
+	 * @param a an array.
+	 * @param n the number of elements of <code>a</code> to consider.
+	 * @return the number of distinct elements, which are now in the first positions of <code>a</code>, in increasing order.
+	 */
+	private static int unique( final int[] a, final int n ) {
+		if ( n == 0 ) return 0;
+		IntArrays.radixSort( a, 0, n );
+		int u = 0;
+		for( int i = 1; i < n; i++ ) if ( a[ i ] != a[ u ] ) a[ ++u ] = a[ i ];
+		return u + 1;
+	}
+
+	@Override
+	public Label prototype() {
+		return prototype;
+	}
+
+	@Override
+	public int numNodes() {
+		return ids.size();
+	}
+
+	@Override
+	public ArcLabelledNodeIterator nodeIterator() {
+		final TripleBatches.Merger merger = batches.merger();
+
+		return new ArcLabelledNodeIterator() {
+			/** The last returned node. */
+			private int last = -1;
+			/** The outdegree of the current node (valid if {@link #last} is not -1). */
+			private int outdegree;
+
+			@Override
+			public int outdegree() {
+				if ( last == -1 ) throw new IllegalStateException();
+				return outdegree;
+			}
+
+			public boolean hasNext() {
+				return last < ids.size() - 1;
+			}
+
+			@Override
+			public int nextInt() {
+				outdegree = merger.successors( ids.pageId( ++last ) );
+				// Targets are page ids: we map them to nodes (the order does not change)
+				final int[] successor = merger.successor;
+				for( int j = outdegree; j-- != 0; ) successor[ j ] = ids.node( successor[ j ] );
+				return last;
+			}
+
+			@Override
+			public int[] successorArray() {
+				if ( last == -1 ) throw new IllegalStateException();
+				return merger.successor;
+			}
+
+			@Override
+			public ArcLabelledNodeIterator.LabelledArcIterator successors() {
+				if ( last == -1 ) throw new IllegalStateException();
+				return new TripleBatches.ArcIterator( merger.successor, merger.label, outdegree, (FixedWidthIntLabel)prototype.copy() );
+			}
+		};
+	}
+
+	public static void main( String args[] ) throws IOException, JSAPException {
+		SimpleJSAP jsap = new SimpleJSAP( PageLinksGraph.class.getName(), "Converts a PageLinks dump into an arc-labelled graph stored as a BVGraph and a BitStreamArcLabelledImmutableGraph. " +
+				"The page id of each node will be saved (as a binary list of ints) with extension \"" + IDS_EXTENSION + "\".",
+				new Parameter[] {
+						new FlaggedOption( "logInterval", JSAP.LONG_PARSER, Long.toString( ProgressLogger.DEFAULT_LOG_INTERVAL ), JSAP.NOT_REQUIRED, 'l', "log-interval", "The minimum time interval between activity logs in milliseconds." ),
+						new FlaggedOption( "batchSize", JSAP.INTSIZE_PARSER, Integer.toString( DEFAULT_BATCH_SIZE ), JSAP.NOT_REQUIRED, 's', "batch-size", "The maximum size of a batch, in links." ),
+						new FlaggedOption( "tempDir", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.NOT_REQUIRED, 'T', "temp-dir", "A directory for all temporary batch files." ),
+						new UnflaggedOption( "pageLinks", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The PageLinks dump." ),
+						new UnflaggedOption( "basename", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The basename of the output graph." ),
+					}
+				);
+
+		JSAPResult jsapResult = jsap.parse( args );
+		if ( jsap.messagePrinted() ) System.exit( 1 );
+
+		final String basename = jsapResult.getString( "basename" );
+		final File tempDir = jsapResult.userSpecified( "tempDir" ) ? new File( jsapResult.getString( "tempDir" ) ) : null;
+		final ProgressLogger pl = new ProgressLogger( LOGGER, jsapResult.getLong( "logInterval" ) );
+		convert( new FileInputStream( jsapResult.getString( "pageLinks" ) ), basename, jsapResult.getInt( "batchSize" ), tempDir, pl );
+	}
+
+	/** Converts a PageLinks dump into an arc-labelled graph, storing also the page id of each node.
+	 *
+	 * @param is an input stream containing a PageLinks dump.
+	 * @param basename the basename of the output graph.
+	 * @param batchSize the number of triples in a batch.
+	 * @param tempDir a temporary directory for the batches, or <code>null</code>.
+	 * @param pl a progress logger, or <code>null</code>.
+	 */
+	public static void convert( final InputStream is, final CharSequence basename, final int batchSize, final File tempDir, final ProgressLogger pl ) throws IOException {
+		final PageLinksGraph graph = new PageLinksGraph( is, batchSize, tempDir, pl );
+		BVGraph.store( graph, basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX, pl );
+		BitStreamArcLabelledImmutableGraph.store( graph, basename, basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX, pl );
+		graph.ids.store( basename + IDS_EXTENSION );
+		graph.batches.delete();
+	}
+}
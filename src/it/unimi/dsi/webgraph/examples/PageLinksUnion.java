@@ -0,0 +1,248 @@
+package it.unimi.dsi.webgraph.examples;
+
+import it.unimi.dsi.Util;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.logging.ProgressLogger;
+import it.unimi.dsi.webgraph.AbstractLazyIntIterator;
+import it.unimi.dsi.webgraph.BVGraph;
+import it.unimi.dsi.webgraph.Transform;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableGraph;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableSequentialGraph;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledNodeIterator;
+import it.unimi.dsi.webgraph.labelling.BitStreamArcLabelledImmutableGraph;
+import it.unimi.dsi.webgraph.labelling.Label;
+import it.unimi.dsi.webgraph.labelling.Labels;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+/** Merges two typed link graphs built by {@link PageLinksGraph} from overlapping PageLinks dumps.
+ *
+ * <p>The two graphs number their nodes using different {@link PageIdMap}s. The page ids of the merged graph are the union of
+ * the page ids of the two graphs: since in all maps node order is page-id order, the node of a page in one graph is mapped to its
+ * node in the merged graph by a monotone map, which preserves the order of successor lists. Each graph is thus exposed in the
+ * merged node space by a sequential view, and the two views are combined by {@link Transform#union(ArcLabelledImmutableGraph, ArcLabelledImmutableGraph, it.unimi.dsi.webgraph.labelling.LabelMergeStrategy)}
+ * using {@link Labels#OR_MERGE_STRATEGY}, so that an arc present in both graphs gets the union of the link types.
+ * The result is compressed directly from the union, without materialising any intermediate graph or text file.
+ *
+ * <p>This replaces the concatenation of the dumps performed by <code>utilities.merge_ids()</code>, which
+ * works only if the second dump starts where the first one ends.
+ */
+
+public class PageLinksUnion {
+	private static final Logger LOGGER = Util.getLogger( PageLinksUnion.class );
+
+	private PageLinksUnion() {}
+
+	/** Exposes an arc-labelled graph in a larger node space, using a monotone map. */
+	private final static class MonotoneRemappedGraph extends ArcLabelledImmutableSequentialGraph {
+		private final ArcLabelledImmutableGraph graph;
+		/** The node in the larger space of each node of {@link #graph}, in increasing order. */
+		private final int[] map;
+		private final int n;
+
+		private MonotoneRemappedGraph( final ArcLabelledImmutableGraph graph, final int[] map, final int n ) {
+			this.graph = graph;
+			this.map = map;
+			this.n = n;
+		}
+
+		@Override
+		public int numNodes() {
+			return n;
+		}
+
+		@Override
+		public Label prototype() {
+			return graph.prototype();
+		}
+
+		@Override
+		public ArcLabelledNodeIterator nodeIterator() {
+			return new ArcLabelledNodeIterator() {
+				private final ArcLabelledNodeIterator nodeIterator = graph.nodeIterator();
+				/** The last returned node. */
+				private int last = -1;
+				/** The next node of {@link #graph} to be returned. */
+				private int next;
+				/** The outdegree of {@link #last}. */
+				private int outdegree = -1;
+				private int[] successor = IntArrays.EMPTY_ARRAY;
+				private Label[] label = new Label[ 0 ];
+
+				public boolean hasNext() {
+					return last < n - 1;
+				}
+
+				@Override
+				public int nextInt() {
+					if ( ! hasNext() ) throw new NoSuchElementException();
+					last++;
+					if ( next < map.length && map[ next ] == last ) {
+						nodeIterator.nextInt();
+						next++;
+						outdegree = nodeIterator.outdegree();
+						successor = IntArrays.ensureCapacity( successor, outdegree );
+						final int[] s = nodeIterator.successorArray();
+						for( int i = outdegree; i-- != 0; ) successor[ i ] = map[ s[ i ] ];
+						label = nodeIterator.labelArray();
+					}
+					else outdegree = 0;
+					return last;
+				}
+
+				@Override
+				public int outdegree() {
+					if ( last == -1 ) throw new IllegalStateException();
+					return outdegree;
+				}
+
+				@Override
+				public int[] successorArray() {
+					if ( last == -1 ) throw new IllegalStateException();
+					return successor;
+				}
+
+				@Override
+				public Label[] labelArray() {
+					if ( last == -1 ) throw new IllegalStateException();
+					return label;
+				}
+
+				@Override
+				public ArcLabelledNodeIterator.LabelledArcIterator successors() {
+					if ( last == -1 ) throw new IllegalStateException();
+					final int d = outdegree;
+					final int[] successor = this.successor;
+					final Label[] label = this.label;
+					return new ArcIterator( successor, label, d );
+				}
+			};
+		}
+	}
+
+	/** Iterates over an array of successors and the corresponding array of labels. */
+	private final static class ArcIterator extends AbstractLazyIntIterator implements ArcLabelledNodeIterator.LabelledArcIterator {
+		private final int[] successor;
+		private final Label[] label;
+		private final int d;
+		/** The index of the next successor to be returned. */
+		private int k;
+
+		private ArcIterator( final int[] successor, final Label[] label, final int d ) {
+			this.successor = successor;
+			this.label = label;
+			this.d = d;
+		}
+
+		public Label label() {
+			if ( k == 0 ) throw new IllegalStateException();
+			return label[ k - 1 ];
+		}
+
+		public int nextInt() {
+			if ( k == d ) return -1;
+			return successor[ k++ ];
+		}
+	}
+
+	/** Computes the union of two lists of page ids.
+	 *
+	 * @param a a strictly increasing list of page ids.
+	 * @param b a strictly increasing list of page ids.
+	 * @return the strictly increasing list of page ids appearing in <code>a</code> or in <code>b</code>.
+	 */
+	private static int[] union( final int[] a, final int[] b ) {
+		final int[] u = new int[ a.length + b.length ];
+		int i = 0, j = 0, k = 0;
+		while( i < a.length || j < b.length ) {
+			if ( j == b.length || i < a.length && a[ i ] < b[ j ] ) u[ k++ ] = a[ i++ ];
+			else if ( i == a.length || b[ j ] < a[ i ] ) u[ k++ ] = b[ j++ ];
+			else {
+				u[ k++ ] = a[ i++ ];
+				j++;
+			}
+		}
+		return IntArrays.trim( u, k );
+	}
+
+	/** Returns the monotone map from the nodes of a graph to the nodes of the merged graph.
+	 *
+	 * @param pageId the page ids of the nodes of a graph.
+	 * @param merged the page ids of the nodes of the merged graph, a superset of <code>pageId</code>.
+	 * @return the node of the merged graph corresponding to each node of the graph.
+	 */
+	private static int[] map( final int[] pageId, final int[] merged ) {
+		final int[] map = new int[ pageId.length ];
+		for( int i = 0, j = 0; i < pageId.length; i++ ) {
+			while( merged[ j ] != pageId[ i ] ) j++;
+			map[ i ] = j;
+		}
+		return map;
+	}
+
+	/** Returns the union of two typed link graphs, in the node space defined by the union of their page ids.
+	 *
+	 * @param g0 the first graph.
+	 * @param ids0 the page ids of the nodes of <code>g0</code>.
+	 * @param g1 the second graph.
+	 * @param ids1 the page ids of the nodes of <code>g1</code>.
+	 * @param ids a one-element array that will contain the page ids of the nodes of the union, or <code>null</code>.
+	 * @return a sequential view of the union of <code>g0</code> and <code>g1</code>, in which the labels of arcs
+	 * present in both graphs are or-ed.
+	 */
+	public static ArcLabelledImmutableGraph union( final ArcLabelledImmutableGraph g0, final PageIdMap ids0, final ArcLabelledImmutableGraph g1, final PageIdMap ids1, final PageIdMap[] ids ) {
+		if ( g0.numNodes() != ids0.size() ) throw new IllegalArgumentException( "The first graph has " + g0.numNodes() + " nodes, but " + ids0.size() + " page ids" );
+		if ( g1.numNodes() != ids1.size() ) throw new IllegalArgumentException( "The second graph has " + g1.numNodes() + " nodes, but " + ids1.size() + " page ids" );
+		final int[] pageId0 = ids0.toIntArray(), pageId1 = ids1.toIntArray();
+		final int[] merged = union( pageId0, pageId1 );
+		if ( ids != null ) ids[ 0 ] = new PageIdMap( merged );
+		LOGGER.info( "Merging " + pageId0.length + " and " + pageId1.length + " pages into " + merged.length + " pages" );
+		return Transform.union( new MonotoneRemappedGraph( g0, map( pageId0, merged ), merged.length ), new MonotoneRemappedGraph( g1, map( pageId1, merged ), merged.length ), Labels.OR_MERGE_STRATEGY );
+	}
+
+	/** Merges two typed link graphs stored by {@link PageLinksGraph#convert(java.io.InputStream, CharSequence, int, java.io.File, ProgressLogger)},
+	 * and stores the result in the same format.
+	 *
+	 * @param basename0 the basename of the first graph.
+	 * @param basename1 the basename of the second graph.
+	 * @param basename the basename of the merged graph.
+	 * @param pl a progress logger, or <code>null</code>.
+	 */
+	public static void merge( final CharSequence basename0, final CharSequence basename1, final CharSequence basename, final ProgressLogger pl ) throws IOException {
+		final PageIdMap[] ids = new PageIdMap[ 1 ];
+		final ArcLabelledImmutableGraph union = union(
+				ArcLabelledImmutableGraph.loadOffline( basename0 ), PageIdMap.load( basename0 + PageLinksGraph.IDS_EXTENSION ),
+				ArcLabelledImmutableGraph.loadOffline( basename1 ), PageIdMap.load( basename1 + PageLinksGraph.IDS_EXTENSION ), ids );
+		BVGraph.store( union, basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX, pl );
+		BitStreamArcLabelledImmutableGraph.store( union, basename, basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX, pl );
+		ids[ 0 ].store( basename + PageLinksGraph.IDS_EXTENSION );
+	}
+
+	public static void main( String args[] ) throws IOException, JSAPException {
+		SimpleJSAP jsap = new SimpleJSAP( PageLinksUnion.class.getName(), "Merges two typed link graphs built by " + PageLinksGraph.class.getSimpleName() + " from overlapping PageLinks dumps, or-ing the types of common links.",
+				new Parameter[] {
+						new FlaggedOption( "logInterval", JSAP.LONG_PARSER, Long.toString( ProgressLogger.DEFAULT_LOG_INTERVAL ), JSAP.NOT_REQUIRED, 'l', "log-interval", "The minimum time interval between activity logs in milliseconds." ),
+						new UnflaggedOption( "basename0", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The basename of the first graph." ),
+						new UnflaggedOption( "basename1", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The basename of the second graph." ),
+						new UnflaggedOption( "basename", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The basename of the merged graph." ),
+					}
+				);
+
+		JSAPResult jsapResult = jsap.parse( args );
+		if ( jsap.messagePrinted() ) System.exit( 1 );
+
+		final ProgressLogger pl = new ProgressLogger( LOGGER, jsapResult.getLong( "logInterval" ) );
+		merge( jsapResult.getString( "basename0" ), jsapResult.getString( "basename1" ), jsapResult.getString( "basename" ), pl );
+	}
+}
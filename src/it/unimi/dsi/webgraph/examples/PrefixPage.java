@@ -0,0 +1,191 @@
+package it.unimi.dsi.webgraph.examples;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrays;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableGraph;
+
+import java.io.File;
+
+/** A page of the titles matching a prefix, with a continuation token for the next page.
+ *
+ * <p>{@link new_search#prefixMatch(ArcLabelledImmutableGraph[], TitleAlphabet, String, int[][])} collects all completions
+ * of a prefix at once, which for prefixes such as <samp>List_of</samp> means hundreds of thousands of strings. The
+ * {@link #get(ArcLabelledImmutableGraph[], TitleAlphabet, String, int[][], String, int)} method, instead, visits
+ * the tree below the prefix depth-first with an explicit stack and stops as soon as a page is full.
+ * The stack (that is, the positions of the arcs followed from the prefix node down to the first leaf not yet returned)
+ * is encoded in an opaque {@linkplain #next continuation token}; passing the token back resumes the visit exactly where it
+ * stopped, at a cost proportional to the depth of the tree rather than to the number of titles already returned, and
+ * without keeping any state between calls.
+ *
+ * <p>Titles are returned in the order of the tree visit, each exactly once per page id. A token is bound to the
+ * shard and (normalised) prefix it was generated for; it is no longer valid once the trees are rebuilt.
+ */
+
+public class PrefixPage {
+	/** The page ids of the titles in this page. */
+	public final IntArrayList ids;
+	/** The titles in this page, in the same order as {@link #ids}, with folded characters after the prefix. */
+	public final ObjectArrayList<String> titles;
+	/** The token to pass to {@link #get(ArcLabelledImmutableGraph[], TitleAlphabet, String, int[][], String, int)}
+	 * to obtain the next page, or <code>null</code> if this is the last page. */
+	public final String next;
+
+	private PrefixPage( final IntArrayList ids, final ObjectArrayList<String> titles, final String next ) {
+		this.ids = ids;
+		this.titles = titles;
+		this.next = next;
+	}
+
+	/** Returns the number of titles in this page.
+	 *
+	 * @return the number of titles in this page.
+	 */
+	public int size() {
+		return ids.size();
+	}
+
+	/** Returns a page of the titles starting with a given prefix.
+	 *
+	 * @param graphlist the title trees, as returned by {@link new_search#graphloader()}.
+	 * @param alphabet the alphabet of the title trees, as returned by {@link TitleAlphabet#load(File)}.
+	 * @param prefix a nonempty prefix.
+	 * @param graphbounds the boundaries of the title trees, as returned by {@link new_search#get_graph_boundaries()}.
+	 * @param token <code>null</code> for the first page, or the {@linkplain #next continuation token} of the previous page.
+	 * @param pageSize the maximum number of titles in the page.
+	 * @return a page of at most <code>pageSize</code> titles starting with <code>prefix</code> (possibly empty, if no title matches).
+	 * @throws IllegalArgumentException if <code>token</code> was not generated for <code>prefix</code> on these trees.
+	 */
+	public static PrefixPage get( final ArcLabelledImmutableGraph[] graphlist, final TitleAlphabet alphabet, final String prefix, final int[][] graphbounds, final String token, final int pageSize ) throws Exception {
+		if ( pageSize <= 0 ) throw new IllegalArgumentException( "Invalid page size: " + pageSize );
+		final IntArrayList ids = new IntArrayList();
+		final ObjectArrayList<String> titles = new ObjectArrayList<String>();
+		if ( prefix.length() == 0 ) return new PrefixPage( ids, titles, null );
+
+		final int shard = new_search.find_file( prefix, graphbounds );
+		final int check = TitleAlphabet.normalise( prefix ).hashCode();
+		int[] path = null;
+		if ( token != null ) {
+			path = decode( token );
+			if ( path.length < 3 || path[ 0 ] != shard || path[ 1 ] != check ) throw new IllegalArgumentException( "Continuation token " + token + " does not belong to prefix " + prefix );
+		}
+
+		final ArcLabelledImmutableGraph graph = graphlist[ shard ];
+		final int root = new_search.full_match( graph, alphabet, prefix, true );
+		if ( root == 0 ) return new PrefixPage( ids, titles, null );
+
+		final Stack stack = new Stack();
+		final StringBuilder title = new StringBuilder( prefix );
+		stack.push( graph, root, path == null ? 1 : path[ 2 ], title.length() );
+		int[] pos = stack.pos;
+
+		if ( path != null ) {
+			// Walk down the path recorded in the token, rebuilding the title
+			for( int i = 3; i < path.length; i++ ) {
+				final int depth = stack.depth;
+				if ( pos[ depth ] < 1 || pos[ depth ] >= stack.outdegree[ depth ] || TitleAlphabet.isLeaf( stack.labels[ depth ][ pos[ depth ] ] ) ) throw new IllegalArgumentException( "Invalid continuation token " + token );
+				title.append( alphabet.string( stack.labels[ depth ][ pos[ depth ] ] ) );
+				stack.push( graph, stack.successors[ depth ][ pos[ depth ] ], path[ i ], title.length() );
+				pos = stack.pos;
+			}
+			if ( pos[ stack.depth ] < 1 || pos[ stack.depth ] > stack.outdegree[ stack.depth ] ) throw new IllegalArgumentException( "Invalid continuation token " + token );
+		}
+
+		for(;;) {
+			int depth = stack.depth;
+			if ( pos[ depth ] == stack.outdegree[ depth ] ) {
+				// All arcs of this node have been visited: back to the parent
+				if ( ( depth = --stack.depth ) == -1 ) return new PrefixPage( ids, titles, null );
+				title.setLength( stack.length[ depth ] );
+				pos[ depth ]++;
+				continue;
+			}
+
+			final int label = stack.labels[ depth ][ pos[ depth ] ];
+			if ( TitleAlphabet.isLeaf( label ) ) {
+				if ( ids.size() == pageSize ) return new PrefixPage( ids, titles, encode( shard, check, pos, depth ) );
+				ids.add( TitleAlphabet.id( label ) );
+				titles.add( title.toString() );
+				pos[ depth ]++;
+				continue;
+			}
+
+			title.append( alphabet.string( label ) );
+			stack.push( graph, stack.successors[ depth ][ pos[ depth ] ], 1, title.length() ); // The first successor is the parent
+			pos = stack.pos;
+		}
+	}
+
+	/** The visit stack: for each depth, the arrays and the outdegree of the node being visited, the current arc and the length of the title so far. */
+	private final static class Stack {
+		int[][] successors = new int[ 16 ][], labels = new int[ 16 ][];
+		int[] outdegree = new int[ 16 ], pos = new int[ 16 ], length = new int[ 16 ];
+		/** The depth of the top of the stack, or -1 if the stack is empty. */
+		int depth = -1;
+
+		/** Pushes a node on the stack, growing the arrays if necessary.
+		 *
+		 * @param graph the title tree.
+		 * @param node the node to be pushed.
+		 * @param arc the position of the first arc of <code>node</code> to be visited.
+		 * @param titleLength the length of the title at <code>node</code>.
+		 */
+		void push( final ArcLabelledImmutableGraph graph, final int node, final int arc, final int titleLength ) throws Exception {
+			if ( ++depth == pos.length ) {
+				successors = ObjectArrays.grow( successors, depth + 1 );
+				labels = ObjectArrays.grow( labels, depth + 1 );
+				outdegree = IntArrays.grow( outdegree, depth + 1 );
+				pos = IntArrays.grow( pos, depth + 1 );
+				length = IntArrays.grow( length, depth + 1 );
+			}
+			outdegree[ depth ] = graph.outdegree( node );
+			successors[ depth ] = graph.successorArray( node );
+			labels[ depth ] = new_search.get_intlabels( graph.labelArray( node ), outdegree[ depth ] );
+			pos[ depth ] = arc;
+			length[ depth ] = titleLength;
+		}
+	}
+
+	/** Encodes a shard, a prefix check and the arc positions on the visit stack into a token. */
+	private static String encode( final int shard, final int check, final int[] pos, final int depth ) {
+		final StringBuilder s = new StringBuilder();
+		s.append( Integer.toString( shard, Character.MAX_RADIX ) ).append( '.' ).append( Integer.toString( check, Character.MAX_RADIX ) );
+		for( int d = 0; d <= depth; d++ ) s.append( '.' ).append( Integer.toString( pos[ d ], Character.MAX_RADIX ) );
+		return s.toString();
+	}
+
+	/** Decodes a token into its shard, prefix check and arc positions. */
+	private static int[] decode( final String token ) {
+		final String[] part = token.split( "\\." );
+		final int[] path = new int[ part.length ];
+		try {
+			for( int i = part.length; i-- != 0; ) path[ i ] = Integer.parseInt( part[ i ], Character.MAX_RADIX );
+		}
+		catch( NumberFormatException e ) {
+			throw new IllegalArgumentException( "Invalid continuation token " + token );
+		}
+		return path;
+	}
+
+	/** Prints, page by page, the titles in the trees of the current directory starting with the prefix given as first argument;
+	 * the optional second argument is the page size (by default, 100). */
+	public static void main( final String[] arg ) throws Exception {
+		if ( arg.length == 0 ) {
+			System.err.println( "Usage: " + PrefixPage.class.getName() + " PREFIX [PAGESIZE]" );
+			System.exit( 1 );
+		}
+		final ArcLabelledImmutableGraph[] graphlist = new_search.graphloader();
+		final int graphbounds[][] = new_search.get_graph_boundaries();
+		final TitleAlphabet alphabet = TitleAlphabet.load( new File( "." ) );
+		final int pageSize = arg.length > 1 ? Integer.parseInt( arg[ 1 ] ) : 100;
+		String token = null;
+		int page = 0;
+		do {
+			final PrefixPage p = get( graphlist, alphabet, arg[ 0 ], graphbounds, token, pageSize );
+			System.out.println( "Page " + page++ + " (" + p.size() + " titles, next: " + p.next + ")" );
+			for( int i = 0; i < p.size(); i++ ) System.out.println( "Id: " + p.ids.getInt( i ) + " Title: " + p.titles.get( i ) );
+			token = p.next;
+		} while( token != null );
+	}
+}
@@ -0,0 +1,286 @@
+package it.unimi.dsi.webgraph.examples;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.io.BinIO;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.text.Normalizer;
+import java.util.List;
+
+/** The alphabet of the title trees built by {@link labelled_graphgen}.
+ *
+ * <p>Every character of a title is <em>folded</em> before being stored in a tree: it is turned into lower case,
+ * stripped of its diacritical marks (by canonical decomposition) and, if it is a space, turned into an underscore.
+ * Queries are folded in the same way, so case and accents are never significant, and matching a query character
+ * against an arc is a single integer comparison. Titles are scanned by code point, so a character outside the Basic
+ * Multilingual Plane takes one level of the tree, and not two.
+ *
+ * <p>Folded code points are then mapped to dense <em>symbols</em>: an alphabet built by {@link #compute(File)} ranks the
+ * folded code points of a database by decreasing frequency, so the most frequent characters get the smallest symbols, and
+ * thus the shortest &gamma; codes in the label stream. The alphabet is stored (by {@link #store(File)}) as
+ * <code>{@value #FILENAME}</code> in the directory of the trees; if there is no such file, the {@linkplain #IDENTITY identity alphabet},
+ * in which the symbol of a folded code point is the code point itself, is used.
+ *
+ * <p>Arc labels come in two kinds, distinguished by their lowest bit:
+ * <ul>
+ * <li>character arcs have label <code>symbol &lt;&lt; 2 | terminal &lt;&lt; 1</code>, where the {@linkplain #TERMINAL terminal bit}
+ * is set if some title ends with that character;
+ * <li>leaf arcs, hanging below the last character of a title, have label <code>id &lt;&lt; 1 | 1</code>, where <code>id</code>
+ * is the page id of the title.
+ * </ul>
+ *
+ * <p>Since the two kinds of labels never overlap, a page id can no longer be mistaken for a character.
+ *
+ * <p>Titles in the database are assumed to be in the form produced by {@link main_modify_database}, that is, with an upper-case
+ * initial and lower-case letters elsewhere, as that is the form the first two characters of a word are recorded with in <code>log.txt</code>.
+ * {@link #normalise(CharSequence)} folds a string and turns an ASCII initial into upper case, but it does not reproduce that form
+ * exactly (e.g., {@link main_modify_database} expands ligatures and keeps non-Latin capitals), so queries are routed to a tree by
+ * {@link new_search#find_file(String, int[][])} using {@link main_modify_database#modify(String)}.
+ */
+
+public class TitleAlphabet {
+	/** The bit set in the labels of leaf arcs. */
+	public final static int LEAF = 1;
+	/** The bit set in the labels of character arcs that terminate a title. */
+	public final static int TERMINAL = 2;
+	/** The name of the file containing the alphabet in the directory of a set of title trees. */
+	public final static String FILENAME = "alphabet.ints";
+
+	/** The folded form of every character. */
+	private final static char[] FOLD = new char[ Character.MAX_VALUE + 1 ];
+
+	static {
+		for( int c = FOLD.length; c-- != 0; ) {
+			if ( c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE ) {
+				FOLD[ c ] = (char)c;
+				continue;
+			}
+			final String d = Normalizer.normalize( String.valueOf( Character.toLowerCase( (char)c ) ), Normalizer.Form.NFD );
+			int i = d.length();
+			while( i-- > 1 && Character.getType( d.charAt( i ) ) == Character.NON_SPACING_MARK );
+			// We keep the base character only if all that follows it is a sequence of combining marks
+			FOLD[ c ] = i == 0 ? Character.toLowerCase( d.charAt( 0 ) ) : Character.toLowerCase( (char)c );
+		}
+		FOLD[ ' ' ] = '_';
+	}
+
+	// The identity alphabet must be built after FOLD has been filled
+	/** The identity alphabet, in which the symbol of a folded code point is the code point itself. */
+	public final static TitleAlphabet IDENTITY = new TitleAlphabet( null );
+
+	/** The folded code points, in symbol order, or <code>null</code> for the identity alphabet. */
+	private final int[] codePoint;
+	/** The key of every character of the Basic Multilingual Plane (folding included), or -1 if it is not in the alphabet. */
+	private final int[] bmpKey;
+	/** The symbols of folded supplementary code points. */
+	private final Int2IntOpenHashMap supplementarySymbol;
+	/** The string representation of every symbol, or <code>null</code> for the identity alphabet. */
+	private final String[] string;
+
+	private TitleAlphabet( final int[] codePoint ) {
+		this.codePoint = codePoint;
+		bmpKey = new int[ FOLD.length ];
+		supplementarySymbol = new Int2IntOpenHashMap();
+		supplementarySymbol.defaultReturnValue( -1 );
+		if ( codePoint == null ) {
+			for( int c = FOLD.length; c-- != 0; ) bmpKey[ c ] = FOLD[ c ] << 2;
+			string = null;
+			return;
+		}
+
+		final Int2IntOpenHashMap symbol = new Int2IntOpenHashMap();
+		symbol.defaultReturnValue( -1 );
+		string = new String[ codePoint.length ];
+		for( int s = 0; s < codePoint.length; s++ ) {
+			symbol.put( codePoint[ s ], s );
+			if ( Character.isSupplementaryCodePoint( codePoint[ s ] ) ) supplementarySymbol.put( codePoint[ s ], s );
+			string[ s ] = new String( Character.toChars( codePoint[ s ] ) );
+		}
+		for( int c = FOLD.length; c-- != 0; ) {
+			final int s = symbol.get( FOLD[ c ] );
+			bmpKey[ c ] = s == -1 ? -1 : s << 2;
+		}
+	}
+
+	/** Folds a character.
+	 *
+	 * @param c a character.
+	 * @return <code>c</code> in lower case and without diacritical marks; spaces are turned into underscores.
+	 */
+	public static char fold( final char c ) {
+		return FOLD[ c ];
+	}
+
+	/** Folds a code point.
+	 *
+	 * @param c a code point.
+	 * @return <code>c</code> {@linkplain #fold(char) folded}; supplementary code points are just turned into lower case.
+	 */
+	public static int fold( final int c ) {
+		return c < FOLD.length ? FOLD[ c ] : Character.toLowerCase( c );
+	}
+
+	/** Normalises a string the way titles are stored in the database: every character is {@linkplain #fold(char) folded},
+	 * and then the initial, if it is an ASCII letter, is turned into upper case.
+	 *
+	 * @param s a string.
+	 * @return the normalised form of <code>s</code>.
+	 */
+	public static String normalise( final CharSequence s ) {
+		final char[] a = new char[ s.length() ];
+		for( int i = a.length; i-- != 0; ) a[ i ] = FOLD[ s.charAt( i ) ];
+		if ( a.length != 0 && a[ 0 ] >= 'a' && a[ 0 ] <= 'z' ) a[ 0 ] -= 32;
+		return new String( a );
+	}
+
+	/** Returns the key of a code point, that is, the label of a non-terminal character arc for the code point once folded.
+	 *
+	 * @param c a code point.
+	 * @return the key of <code>c</code>, or -1 if <code>c</code> does not appear in this alphabet (and thus in any title).
+	 */
+	public int key( final int c ) {
+		if ( c < bmpKey.length ) return bmpKey[ c ];
+		if ( codePoint == null ) return fold( c ) << 2;
+		final int s = supplementarySymbol.get( fold( c ) );
+		return s == -1 ? -1 : s << 2;
+	}
+
+	/** Returns the (folded) code point of a character arc label.
+	 *
+	 * @param label the label of a character arc.
+	 * @return the corresponding folded code point.
+	 */
+	public int codePoint( final int label ) {
+		return codePoint == null ? label >>> 2 : codePoint[ label >>> 2 ];
+	}
+
+	/** Returns the (folded) code point of a character arc label as a string.
+	 *
+	 * @param label the label of a character arc.
+	 * @return the corresponding folded code point, as a string.
+	 */
+	public String string( final int label ) {
+		return string == null ? new String( Character.toChars( label >>> 2 ) ) : string[ label >>> 2 ];
+	}
+
+	/** Returns the number of symbols of this alphabet.
+	 *
+	 * @return the number of symbols, or -1 for the identity alphabet.
+	 */
+	public int size() {
+		return codePoint == null ? -1 : codePoint.length;
+	}
+
+	/** Returns whether an arc label matches a character key.
+	 *
+	 * @param label an arc label.
+	 * @param key a {@linkplain #key(int) character key}.
+	 * @return true if <code>label</code> is the label of a character arc, terminal or not, for <code>key</code>.
+	 */
+	public static boolean matches( final int label, final int key ) {
+		return ( label & ~TERMINAL ) == key;
+	}
+
+	/** Returns the position of the arc matching a key in a list of labels.
+	 *
+	 * @param labels a list of arc labels.
+	 * @param key a {@linkplain #key(int) character key}.
+	 * @return the position of the arc labelled by <code>key</code>, or -1.
+	 */
+	public static int find( final List<Integer> labels, final int key ) {
+		for( int i = labels.size(); i-- != 0; ) if ( ( labels.get( i ).intValue() & ~TERMINAL ) == key ) return i;
+		return -1;
+	}
+
+	/** Returns the label of a leaf arc.
+	 *
+	 * @param id a page id.
+	 * @return the label of the leaf arc for <code>id</code>.
+	 */
+	public static int leafLabel( final int id ) {
+		if ( id < 0 || id > Integer.MAX_VALUE >>> 1 ) throw new IllegalArgumentException( "Page id out of range: " + id );
+		return id << 1 | LEAF;
+	}
+
+	/** Returns whether an arc label is the label of a leaf arc.
+	 *
+	 * @param label an arc label.
+	 * @return true if <code>label</code> carries a page id.
+	 */
+	public static boolean isLeaf( final int label ) {
+		return ( label & LEAF ) != 0;
+	}
+
+	/** Returns whether an arc label is the label of a character arc terminating a title.
+	 *
+	 * @param label an arc label.
+	 * @return true if <code>label</code> is the label of a terminal character arc.
+	 */
+	public static boolean isTerminal( final int label ) {
+		return ( label & ( LEAF | TERMINAL ) ) == TERMINAL;
+	}
+
+	/** Returns the page id carried by a leaf arc label.
+	 *
+	 * @param label the label of a leaf arc.
+	 * @return the page id.
+	 */
+	public static int id( final int label ) {
+		return label >>> 1;
+	}
+
+	/** Computes the alphabet of a database, ranking its folded code points by decreasing frequency.
+	 *
+	 * @param database a database of TAB-separated titles and page ids (read using the platform encoding, as {@link labelled_graphgen} does).
+	 * @return the alphabet of <code>database</code>.
+	 */
+	public static TitleAlphabet compute( final File database ) throws IOException {
+		final Int2IntOpenHashMap count = new Int2IntOpenHashMap();
+		final BufferedReader br = new BufferedReader( new InputStreamReader( new FileInputStream( database ) ) );
+		String line;
+		while( ( line = br.readLine() ) != null ) {
+			final int tab = line.indexOf( '\t' );
+			final String title = ( tab == -1 ? line : line.substring( 0, tab ) ).trim();
+			for( int i = 0; i < title.length(); ) {
+				final int c = title.codePointAt( i );
+				count.add( fold( c ), 1 );
+				i += Character.charCount( c );
+			}
+		}
+		br.close();
+
+		final int[] codePoint = count.keySet().toIntArray();
+		IntArrays.quickSort( codePoint, new AbstractIntComparator() {
+			public int compare( final int x, final int y ) {
+				final int t = count.get( y ) - count.get( x );
+				return t != 0 ? t : x - y;
+			}
+		} );
+		return new TitleAlphabet( codePoint );
+	}
+
+	/** Stores this alphabet as <code>{@value #FILENAME}</code> in the given directory.
+	 *
+	 * @param dir a directory.
+	 */
+	public void store( final File dir ) throws IOException {
+		if ( codePoint == null ) throw new UnsupportedOperationException( "The identity alphabet cannot be stored" );
+		BinIO.storeInts( codePoint, new File( dir, FILENAME ) );
+	}
+
+	/** Loads the alphabet stored in the given directory.
+	 *
+	 * @param dir a directory.
+	 * @return the alphabet stored in <code>dir</code> by {@link #store(File)}, or the {@linkplain #IDENTITY identity alphabet} if there is none.
+	 */
+	public static TitleAlphabet load( final File dir ) throws IOException {
+		final File f = new File( dir, FILENAME );
+		return f.exists() ? new TitleAlphabet( BinIO.loadInts( f ) ) : IDENTITY;
+	}
+}
@@ -0,0 +1,258 @@
+package it.unimi.dsi.webgraph.examples;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntHeapSemiIndirectPriorityQueue;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.io.InputBitStream;
+import it.unimi.dsi.io.OutputBitStream;
+import it.unimi.dsi.webgraph.AbstractLazyIntIterator;
+import it.unimi.dsi.webgraph.labelling.AbstractIntLabel;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledNodeIterator;
+import it.unimi.dsi.webgraph.labelling.Label;
+
+import java.io.File;
+import java.io.IOException;
+
+/** Sorted batches of labelled arcs spilled to disk, and their merge.
+ *
+ * <p>Triples &lt;source, target, label&gt; are accumulated by the caller in three arrays of integers; when the arrays are
+ * full, they are passed to {@link #add(int, int[][])}, which sorts them and writes them to a temporary file
+ * in the format of {@link it.unimi.dsi.webgraph.Transform#processBatch(int, int[], int[], File, java.util.List)}, except that
+ * each pair is followed by its label. A {@link Merger} merges the batches on the fly, returning the successors of
+ * each source in increasing order.
+ *
+ * <p>Labels are written either in &gamma; code or in a fixed number of bits. Triples with the same source and target
+ * (in the same batch or in different batches) are merged into a single arc, whose label is either the smallest
+ * label ({@link #MIN}) or the bitwise or of all labels ({@link #OR}).
+ */
+
+final class TripleBatches {
+	/** Labels of arcs with the same source and target are merged by keeping the smallest one. */
+	final static int MIN = 0;
+	/** Labels of arcs with the same source and target are merged by bitwise or. */
+	final static int OR = 1;
+
+	/** The sorted batches. */
+	final ObjectArrayList<File> batches = new ObjectArrayList<File>();
+	/** The number of distinct arcs in all batches (arcs appearing in several batches are counted several times). */
+	long triples;
+	/** A temporary directory for the batches, or <code>null</code>. */
+	private final File tempDir;
+	/** The width in bits of a label, or 0 for &gamma;-coded labels. */
+	private final int labelWidth;
+	/** The merge operation, either {@link #MIN} or {@link #OR}. */
+	private final int merge;
+
+	/** Creates an empty set of batches.
+	 *
+	 * @param tempDir a temporary directory for the batches, or <code>null</code> for {@link File#createTempFile(java.lang.String, java.lang.String)}'s choice.
+	 * @param labelWidth the width in bits of a label, or 0 to write labels in &gamma; code.
+	 * @param merge the merge operation for the labels of arcs with the same source and target, either {@link #MIN} or {@link #OR}.
+	 */
+	TripleBatches( final File tempDir, final int labelWidth, final int merge ) {
+		if ( labelWidth < 0 || labelWidth > Integer.SIZE ) throw new IllegalArgumentException( "Invalid label width: " + labelWidth );
+		if ( merge != MIN && merge != OR ) throw new IllegalArgumentException( "Invalid merge operation: " + merge );
+		this.tempDir = tempDir;
+		this.labelWidth = labelWidth;
+		this.merge = merge;
+	}
+
+	/** Merges two labels.
+	 *
+	 * @param a a label.
+	 * @param b another label; if the merge operation is {@link #MIN}, it must not be smaller than <code>a</code>.
+	 * @return the merge of <code>a</code> and <code>b</code>.
+	 */
+	private int merge( final int a, final int b ) {
+		return merge == OR ? a | b : a;
+	}
+
+	/** Sorts the given triples, merges triples with the same source and target, and stores the result in a temporary file.
+	 *
+	 * @param n the number of triples.
+	 * @param triple the sources, targets and labels of the triples; they will be sorted.
+	 */
+	void add( final int n, final int[][] triple ) throws IOException {
+		IntArrays.radixSort( triple, 0, n );
+		final int[] source = triple[ 0 ], target = triple[ 1 ], label = triple[ 2 ];
+
+		final File batchFile = File.createTempFile( "batch", ".bitstream", tempDir );
+		batchFile.deleteOnExit();
+		batches.add( batchFile );
+		final OutputBitStream batch = new OutputBitStream( batchFile );
+		// Compute unique pairs
+		int u = 1;
+		for( int i = n - 1; i-- != 0; ) if ( source[ i ] != source[ i + 1 ] || target[ i ] != target[ i + 1 ] ) u++;
+		batch.writeDelta( u );
+		triples += u;
+
+		int prevSource = -1, prevTarget = -1, l = 0;
+		for( int i = 0; i < n; i++ ) {
+			if ( source[ i ] == prevSource && target[ i ] == prevTarget ) {
+				l = merge( l, label[ i ] );
+				continue;
+			}
+			if ( i != 0 ) writeLabel( batch, l );
+			if ( source[ i ] != prevSource ) {
+				batch.writeDelta( source[ i ] - Math.max( prevSource, 0 ) );
+				batch.writeDelta( target[ i ] );
+			}
+			else {
+				batch.writeDelta( 0 );
+				batch.writeDelta( target[ i ] - prevTarget - 1 );
+			}
+			prevSource = source[ i ];
+			prevTarget = target[ i ];
+			l = label[ i ];
+		}
+		if ( n != 0 ) writeLabel( batch, l );
+		batch.close();
+	}
+
+	private void writeLabel( final OutputBitStream obs, final int label ) throws IOException {
+		if ( labelWidth == 0 ) obs.writeGamma( label );
+		else obs.writeInt( label, labelWidth );
+	}
+
+	private int readLabel( final InputBitStream ibs ) throws IOException {
+		return labelWidth == 0 ? ibs.readGamma() : ibs.readInt( labelWidth );
+	}
+
+	/** Deletes the batch files. */
+	void delete() {
+		for( File f : batches ) f.delete();
+	}
+
+	/** Returns a new merger of the batches.
+	 *
+	 * @return a new merger of the batches.
+	 */
+	Merger merger() {
+		return new Merger();
+	}
+
+	/** Merges the batches, returning the successors of sources in increasing order. Each batch is closed as soon as it is exhausted. */
+	final class Merger {
+		/** The successors of the last source (only the first entries returned by {@link #successors(int)} are meaningful). */
+		int[] successor = IntArrays.EMPTY_ARRAY;
+		/** The labels of the arcs towards {@link #successor}. */
+		int[] label = IntArrays.EMPTY_ARRAY;
+		/** For each batch, its current source. */
+		private final int[] refArray;
+		private final InputBitStream[] batchIbs;
+		/** For each batch, the number of pairs still to be read. */
+		private final int[] inputStreamLength;
+		/** For each batch, the last target read. */
+		private final int[] prevTarget;
+		/** The indirect queue used to merge the batches. */
+		private final IntHeapSemiIndirectPriorityQueue queue;
+
+		private Merger() {
+			refArray = new int[ batches.size() ];
+			batchIbs = new InputBitStream[ refArray.length ];
+			inputStreamLength = new int[ refArray.length ];
+			prevTarget = new int[ refArray.length ];
+			IntArrays.fill( prevTarget, -1 );
+			queue = new IntHeapSemiIndirectPriorityQueue( refArray );
+
+			try {
+				// We open all files and load the first element into the reference array.
+				for( int i = 0; i < refArray.length; i++ ) {
+					batchIbs[ i ] = new InputBitStream( batches.get( i ) );
+					inputStreamLength[ i ] = batchIbs[ i ].readDelta();
+					refArray[ i ] = batchIbs[ i ].readDelta();
+					queue.enqueue( i );
+				}
+			}
+			catch( IOException e ) {
+				throw new RuntimeException( e );
+			}
+		}
+
+		/** Reads the successors of a source, which must be larger than the one of the previous call, into {@link #successor} and {@link #label}.
+		 *
+		 * @param source a source.
+		 * @return the number of successors of <code>source</code>.
+		 */
+		int successors( final int source ) {
+			int d = 0;
+			int i;
+
+			try {
+				/* We extract elements from the queue as long as their source is equal
+				 * to source. If during the process we exhaust a batch, we close it. */
+				while( ! queue.isEmpty() && refArray[ i = queue.first() ] == source ) {
+					successor = IntArrays.grow( successor, d + 1 );
+					label = IntArrays.grow( label, d + 1 );
+					successor[ d ] = ( prevTarget[ i ] += batchIbs[ i ].readDelta() + 1 );
+					label[ d++ ] = readLabel( batchIbs[ i ] );
+					if ( --inputStreamLength[ i ] == 0 ) {
+						queue.dequeue();
+						batchIbs[ i ].close();
+						batchIbs[ i ] = null;
+					}
+					else {
+						// We read a new source and update the queue.
+						final int sourceDelta = batchIbs[ i ].readDelta();
+						if ( sourceDelta != 0 ) {
+							refArray[ i ] += sourceDelta;
+							prevTarget[ i ] = -1;
+							queue.changed();
+						}
+					}
+				}
+			}
+			catch( IOException e ) {
+				throw new RuntimeException( e );
+			}
+
+			if ( batches.size() == 1 ) return d;
+			// Batches may contain the same target: we sort and merge labels.
+			IntArrays.radixSort( successor, label, 0, d );
+			int p = -1;
+			for( int j = 0; j < d; j++ ) {
+				if ( p >= 0 && successor[ p ] == successor[ j ] ) label[ p ] = merge( label[ p ], label[ j ] );
+				else {
+					successor[ ++p ] = successor[ j ];
+					label[ p ] = label[ j ];
+				}
+			}
+			return p + 1;
+		}
+	}
+
+	/** Iterates over the successors of a node, exposing their labels through a label object. */
+	final static class ArcIterator extends AbstractLazyIntIterator implements ArcLabelledNodeIterator.LabelledArcIterator {
+		private final int[] successor;
+		private final int[] label;
+		private final int d;
+		private final AbstractIntLabel prototype;
+		/** The index of the next successor to be returned. */
+		private int k;
+
+		/** Creates a new arc iterator.
+		 *
+		 * @param successor the successors.
+		 * @param label the labels of the arcs towards <code>successor</code>.
+		 * @param d the number of successors.
+		 * @param prototype a label whose {@linkplain AbstractIntLabel#value value} will be set to the label of the current arc.
+		 */
+		ArcIterator( final int[] successor, final int[] label, final int d, final AbstractIntLabel prototype ) {
+			this.successor = successor;
+			this.label = label;
+			this.d = d;
+			this.prototype = prototype;
+		}
+
+		public Label label() {
+			if ( k == 0 ) throw new IllegalStateException();
+			prototype.value = label[ k - 1 ];
+			return prototype;
+		}
+
+		public int nextInt() {
+			if ( k == d ) return -1;
+			return successor[ k++ ];
+		}
+	}
+}
@@ -4,7 +4,8 @@
  */
 package it.unimi.dsi.webgraph.examples;
 
-import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.logging.ProgressLogger;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.DataInputStream;
@@ -12,9 +13,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 
 /**
  *
@@ -110,87 +108,18 @@ public class TypedEdgeGraph {
         return map_file;
     }
     
-    /* This reads from a text file in which the page ids are stored in an increasing order, and loads this data in to a 
-     * 37 * 100000 2-d array.
-     * 
-     * 
-     */
-    
-    public static int[][] load_mapping(String mapping_file) throws Exception{
-        int arraylength = 100000;
-        int x = mapping_file.lastIndexOf('_');
-        //int y = mapping_file.lastIndexOf('.');
-        int totalcount = Integer.parseInt(mapping_file.substring(x+1));
-        int numarray = (totalcount/arraylength)+1;
-        System.out.println("number of arrays is "+numarray+" because totalcount is "+totalcount);
-        int mapping[][] = new int[numarray][arraylength];
-        FileInputStream fstream = new FileInputStream(mapping_file+".txt");
-        DataInputStream in = new DataInputStream(fstream);
-        
-        BufferedReader br = new BufferedReader( new InputStreamReader( in ) );
-        String line;
-        int i=0,a=0,b=0,j=0;
-        //i=0;
-        while((line=br.readLine())!=null){
-            a = i/arraylength;
-            b = i%arraylength;
-            try{
-                mapping[a][b] = Integer.parseInt(line);
-            }
-            catch(Exception E){
-                System.out.println("check entry number "+i);
-            }
-            i++;
-            if(a==numarray-1)
-                j++;
-        }
-        //System.out.println("The last array is this long "+j);
-        if(i<(numarray-1)*arraylength)
-            System.out.println("Some problem because the number of ids is less than expected minimum bar");
-        mapping[numarray-1] = Arrays.copyOf(mapping[numarray-1], j);
-        return mapping;
-    }
-    
-    public static int[][] load_mapping_mod() throws Exception{
-        int mapping[][] = new int[37][100000];
-        FileInputStream fstream = new FileInputStream("page_ids2.txt");
-        DataInputStream in = new DataInputStream(fstream);
-        
-        BufferedReader br = new BufferedReader( new InputStreamReader( in ) );
-        String line;
-        int i,a,b,j=0;
-        i=0;
-        while((line=br.readLine())!=null){
-            a = i/100000;
-            b = i%100000;
-            try{
-            mapping[a][b] = Integer.parseInt(line);
-            }
-            catch(Exception E){
-                System.out.println("check entry number "+i);
-            }
-            i++;
-            if(a==36)
-                j++;
-        }
-        //System.out.println("The last array is this long "+j);
-        mapping[36] = Arrays.copyOf(mapping[36], j);
-        return mapping;
-    }
-    
-    
-    
     /*
      * This methods looks at the destination ids and checks if any such page ids exist which were not listed in the
-     * source ids, and accordingly updates the mapping after sorting the changed ordering iteratively, considering 
-     * 1000 missing ids at a time, modifying the mapping accordingly and now looking for the ids still missing.
+     * source ids, and adds them to the mapping. The final mapping, containing every page id exactly once and in increasing
+     * order, is written to a text file whose name (without extension) is returned.
      * 
+     * Membership is checked with a PageIdMap, so every destination costs a rank and a select instead of a binary search
+     * over chunks of ids.
      */
     public static String update_missing(String links_file, String mapping_file)throws Exception{
-        int mapping[][] = load_mapping(mapping_file);
-        int missing[] = new int[1000];
-        mapping = modify_mapping(mapping,missing,0);
-        //int special_mapping = Arrays.copyOf(mapping[36], newLength)
+        PageIdMap map = PageIdMap.loadText(mapping_file+".txt");
+        int ids[] = map.toIntArray();
+        int total = ids.length;
         System.out.println("Loaded the mapping successfully");
         FileInputStream fstream = new FileInputStream(links_file+".txt");
         DataInputStream in = new DataInputStream(fstream);
@@ -201,213 +130,69 @@ public class TypedEdgeGraph {
         
         String line;
         int destination_id;
-        int i,j=0,count = 0,missingcount=0;
-        //int missing[] = new int[1000];
+        int count = 0;
         while((line=br.readLine())!=null){
             String words[] = line.split("\t");
             destination_id = Integer.parseInt(words[1]);
-            i = find_array(destination_id,mapping);
-            if(i>=0)
-                j =Arrays.binarySearch(mapping[i],destination_id);
-            else
-                j=-1;
-            if(j<0){
-                //System.out.println(+destination_id+" not present in mapping");
-                //bw.write(Integer.toString(destination_id));
-                //bw.newLine();
-                //bw.flush();
-                missing[missingcount] = destination_id;
-                missingcount++;
+            if(map.node(destination_id)<0){
+                ids = IntArrays.grow(ids, total+1);
+                ids[total++] = destination_id;
             }
             count++;
             if(count%1000000==0)
                 System.out.println("The count is "+count);
-            if(missingcount==1000){
-                //System.out.println("Written down another 1000 missing entries");
-                //sort_map();
-                mapping = modify_mapping(mapping, missing, missingcount);
-                //System.out.println("Modified the mapping");
-                missingcount =0;
-                missing = new int[1000];
-            }
         }
-        mapping = modify_mapping (mapping, missing, missingcount);
-        int totalsize = (mapping.length-1)*mapping[0].length+mapping[mapping.length-1].length;
-        for(int k=0;k<totalsize;k++){
-            bw.write(Integer.toString(mapping[k/(mapping[0].length)][k%(mapping[0].length)]));
+        br.close();
+        // a missing id may appear many times: sort and skip duplicates while writing
+        IntArrays.radixSort(ids, 0, total);
+        for(int k=0;k<total;k++){
+            if(k>0 && ids[k]==ids[k-1])
+                continue;
+            bw.write(Integer.toString(ids[k]));
             bw.newLine();
-            bw.flush();
         }
         bw.close();
         return mapping_final;
     }
     
     
-    /* This modifies the mapping so as to accomodate the missing page ids.
-     * 
-     * mapping is the original mapping
-     * missing is the array containing the missing ids 
-     * missingcount is the number of missing ids, found
-     */
-    public static int[][] modify_mapping(int [][] mapping,int[] missing,int missingcount){
-        int len = 0,j=0,a,b;
-        int total = (mapping.length-1)*mapping[0].length +mapping[mapping.length-1].length;
-        int array[] = new int[total+missingcount];
-        int arraylength = mapping[0].length;
-        //System.out.println("The arraylength is "+arraylength);
-        while(len<total){
-            a = len/arraylength;
-            b = len%arraylength;
-            array[len] = mapping[a][b];
-            //if(len==210468)
-            //    System.out.println("The 210468th element is "+mapping[a][b]+" when a and b are "+a+" and "+b);
-            len++;
-        }
-        //array = Arrays.copyOf(array, len);
-        for(; len<missingcount+total;len++){
-            array[len] = missing[len-total];
-        }
-        mapping = new int[len/(arraylength)+1][arraylength];
-        //System.out.println("The last element of array is "+array[array.length-1]);
-        int zerocount =0;
-        //int zeroplace = 0;
-        for(int i=0;i<len;i++){
-            if(array[i]==0){
-                zerocount++;
-                System.out.println("Zero found at "+i);
-            }
-        }
-        //System.out.println("The number of zeros found is "+zerocount);
-        Arrays.sort(array);
-        //System.out.println("Just sorted the array, now writing back to mapping");
-        int curr=-1;
-        int count=0;
-        //System.out.println("");
-        for(int i=0;i<len;i++){
-            if(curr ==array[i]){
-                //System.out.println("Continuing because "+curr+" is same as "+i+"th element");
-                continue;
-            }
-            if(count%100000==0)
-                System.out.println("Written "+ count+" entries");
-            curr = array[i];
-            try{
-                mapping[count/(arraylength)][count%(arraylength)] = array[i];
-            }
-            catch(Exception E){
-                System.out.println("a= "+(count/arraylength)+" while i is "+i+"because count is "+count);
-            }
-            if((count/arraylength)==mapping.length-1)
-                j++;
-            count++;
-        }
-        //System.out.println("The last array is this long "+j);
-        mapping[mapping.length-1] = Arrays.copyOf(mapping[mapping.length-1], j);
-        return mapping;
-    }
-    /* This runs a binary search for finding out the array in which the dest_id might be present
-     * 
-     * 
-     * 
-     */
-    public static int find_array(int dest_id, int[][] mapping){
-        int low=0, hi = mapping.length-1,mid;
-        //System.out.println("length of mapping is "+hi);
-        //int size_array = mapping[0].length-1;
-        int iter=0;
-        if (dest_id<mapping[0][0])
-            return -1;
-        while(hi>low){
-            mid = (hi+low)/2;
-            //System.out.println("mid is "+mid);
-            int size_array = mapping[mid].length-1;
-            if(mid== hi)
-                return hi;
-            if(dest_id>=mapping[mid][0] && dest_id<=mapping[mid][size_array])
-                return mid;
-            if(dest_id<mapping[mid][0])
-                hi = mid;
-            else if(dest_id>mapping[mid][size_array])
-                low = mid+1;
-            iter++;
-            if(iter>15){
-                System.out.print("Stuck in loop for "+dest_id);
-                return 0;
-            }
-                
-        }
-        return low;
-    }
-    
-    /* This method taken takes in an n*2 array, where n is the number of links in the original file.
-     * for a particular source and writes the arcs accordingly. The first column contains the destination ids and 
-     * the second one contains the corresponding labels. Destnation having mulitple arcs from the same source having same labels
-     * are counted as one instance of that label arc, and those having different labels are combined using a binary string of length
-     * 20. The nth bit signifies whether one of the 20 different types of arcs exists between this source and destination. Further,
-     * this binary representation is converted to an integer for the purpose of making the graph.
-     * 
-     * 
+    /* This method takes in the links from a particular source, as two parallel arrays of which only the first currcount
+     * entries are meaningful: destinations contains the destination ids and types the corresponding link types. The links
+     * are sorted by destination (the arrays are permuted in place) and the arcs are written accordingly. Multiple links from
+     * the source to the same destination become a single arc, whose label is an int bitmask with one bit per type: type t
+     * sets bit 19-t (see PageLinksGraph.typeMask()), so the label is the same integer the old 20-character binary string
+     * would have been parsed to. Loops are not written.
      * 
      */
     
-    public static void write_arcs(int source, int[][] currentarray, BufferedWriter bw, int currcount) throws Exception{
+    public static void write_arcs(int source, int[] destinations, int[] types, int currcount, BufferedWriter bw) throws Exception{
+        IntArrays.radixSort(destinations, types, 0, currcount);
         int currdest=-1;
-        boolean labelarray[] = new boolean[20];
-        Arrays.fill(labelarray,false);
-        int label;
-        int temp;
-        //int labelcount=0;
-        //int duplicates=0;
-        //BufferedWriter bws = new BufferedWriter(new FileWriter(new File("pseudo_arcs.txt"), true));
+        int mask=0;
         for (int i=0;i<currcount;i++){
-            //System.out.println(Integer.toString(source)+"\t"+Integer.toString(currentarray[i][0])+"\t"+Integer.toString(currentarray[i][1]));
-            if(currdest!=currentarray[i][0]){
-                //label = (int)Math.pow(10,8)+labelarray[0]*(int)Math.pow(10, 6)+labelarray[1]*(int)Math.pow(10, 4)+labelarray[2]*(int)Math.pow(10, 2)+labelarray[3];
-                String S = "00000000000000000000";
-                for(int j=0;j<20;j++){
-                    if (labelarray[j]==true)
-                        S = S.substring(0, j)+Character.toString((char)49)+S.substring(j+1);
-                }
-                label = Integer.parseInt(S,2);
-                if(i!=0){
-                    if (source==currdest){
-                        System.out.println("Still same");
-                        continue;
-                    }
-                        
-                    bw.write(Integer.toString(source)+"\t"+Integer.toString(currdest)+"\t"+Integer.toString(label));
-                    bw.newLine();
-                    bw.flush();
-                }
-                currdest = currentarray[i][0];
-                labelarray = new boolean[20];
-                Arrays.fill(labelarray,false);
-                temp = currentarray[i][1];
-                labelarray[temp] = true;
-            }
-            else if (currdest==currentarray[i][0]){
-                //duplicates++;
-                temp = currentarray[i][1];
-                    
-                labelarray[temp] = true;
-                //labelcount++;
-                
+            if(i!=0 && currdest!=destinations[i]){
+                if(currdest!=source)
+                    bw.write(source+"\t"+currdest+"\t"+mask+"\n");
+                mask = 0;
             }
+            currdest = destinations[i];
+            mask |= PageLinksGraph.typeMask(types[i]);
         }
-        //if(duplicates>0)
-        //    System.out.println(duplicates+" duplicates removed");
+        // the last destination has no successor to trigger its write
+        if(currcount>0 && currdest!=source)
+            bw.write(source+"\t"+currdest+"\t"+mask+"\n");
     }
     
     /* This converts the page ids in each link to the mapped value between 1-37 lakh as given by the created mapping, and then
      * rewritess the triplets in a file named arcs_page.txt
      * 
-     * 
+     * The links of the current source are buffered in two parallel int arrays (destinations and types) which are allocated
+     * once, grown when a source has more links than they can hold, and sorted with a radix sort before being passed to
+     * write_arcs. There is no limit on the number of links of a source.
      */
     
-    
-    
     public static void links_to_arcs(String links_file, String mapping_final)throws Exception{
-        int mapping[][] = load_mapping(mapping_final);
+        PageIdMap map = PageIdMap.loadText(mapping_final+".txt");
         FileInputStream fstream = new FileInputStream(links_file+".txt");
         DataInputStream in = new DataInputStream(fstream);
         
@@ -415,95 +200,53 @@ public class TypedEdgeGraph {
         BufferedWriter bw = new BufferedWriter(new FileWriter(new File("arcs_page.txt"), false));
         
         String line;
-        int source_id,destination_id,source,destination,label;
-        int i,j=0,count = 0;
+        int source_id,destination_id,destination;
+        int count = 0;
         int curr_id = -1;
         int curr = -1;
-        int max_outlinks = 15000;
-        int currentarray[][] = new int[max_outlinks][2];
+        int destinations[] = new int[1024];
+        int types[] = new int[1024];
         int currcount=0;
         while((line=br.readLine())!=null){
             String words[] = line.split("\t");
             source_id = Integer.parseInt(words[0]);
-            if (curr_id == source_id){
-                source = curr;
-                destination_id = Integer.parseInt(words[1]);
-                i = find_array(destination_id,mapping);
-                j =Arrays.binarySearch(mapping[i],destination_id);
-                if(j<0)
-                    System.out.println("Still there are missing ids like "+destination_id);
-                destination = i*100000+j;
-                if (destination==source){
-                    //System.out.println("Same source and destination");
-                    count++;
-                    continue;
-                }
-                if (currcount==max_outlinks){
-                        System.out.println("More than 15000 outlinks at "+count);
-                        continue;
-                }
-                currentarray[currcount][0] = destination;
-                currentarray[currcount][1] = Integer.parseInt(words[2]);
-                currcount++;
-            }
-            else{
-                
-                if(currcount>0){
-                    currentarray = Arrays.copyOf(currentarray, currcount);
-                    Arrays.sort( currentarray, new Comparator<int[]>() {
-			public int compare( int[] p, int[] q ) {
-				final int t =  p[ 0 ] - q[ 0 ]; // Compare by source
-				if ( t != 0 ) return t;
-				return p[ 1 ] - q[ 1 ]; // Compare by destination
-			}
-		} );
-                
-                write_arcs(curr, currentarray, bw, currcount);
-                }
-                currentarray = new int[max_outlinks][2];
+            if (curr_id != source_id){
+                write_arcs(curr, destinations, types, currcount, bw);
                 currcount = 0;
-                i = find_array(source_id,mapping);
-                j = Arrays.binarySearch(mapping[i],source_id);
-                if(j<0)
+                curr = map.node(source_id);
+                if(curr<0)
                     System.out.println("Still there are missing ids like "+source_id);
-                source = i*100000+j;
                 curr_id = source_id;
-                curr = source;
-                destination_id = Integer.parseInt(words[1]);
-                i = find_array(destination_id,mapping);
-                j =Arrays.binarySearch(mapping[i],destination_id);
-                if(j<0)
-                    System.out.println("Still there are missing ids like "+destination_id);
-                destination = i*100000+j;
-                if (destination==source){
-                    //System.out.println("Same source and destination at "+count);
-                
-                }
-                currentarray[currcount][0] = destination;
-                currentarray[currcount][1] = Integer.parseInt(words[2]);
-                currcount++;
             }
-            
-            //bw.write(Integer.toString(source)+"\t"+Integer.toString(destination)+"\t"+words[2]);
+            destination_id = Integer.parseInt(words[1]);
+            destination = map.node(destination_id);
+            if(destination<0)
+                System.out.println("Still there are missing ids like "+destination_id);
             count++;
             if(count%5000000==0)
                 System.out.println("The count is "+count);
-                //return;
+            if (destination==curr)
+                continue;
+            if (currcount==destinations.length){
+                destinations = IntArrays.grow(destinations, currcount+1);
+                types = IntArrays.grow(types, currcount+1);
+            }
+            destinations[currcount] = destination;
+            types[currcount] = Integer.parseInt(words[2]);
+            currcount++;
         }
+        write_arcs(curr, destinations, types, currcount, bw);
+        br.close();
         bw.close();
     }
-   /* This main method shows how to convert a given Pagelinks file into file haviing triplets which can be converted directly
-     * into graphfiles using the implementation given in RelGrap. 
-     * 
+   /* This main method converts PageLinks_combined.txt into the arc-labelled graph arcs_page. The conversion is done in a
+     * single pass by PageLinksGraph, with the same mapping of page ids and the same labels that the stages above
+     * (reduce, write_ids, update_missing and links_to_arcs, followed by RelGraph) would produce, without writing any
+     * intermediate text file.
      * 
      */
     
     public static void main(String args[]) throws Exception{
-        String links_file = reduce("PageLinks_combined");
-        String mapping_file = write_ids(links_file);
-        System.out.println("ids written down and name of mapping file is "+mapping_file);
-        String mapping_final = update_missing(links_file, mapping_file);
-        System.out.println("missing ids found and updated and name of the file returned is "+mapping_final);
-        links_to_arcs(links_file,mapping_final);
+        PageLinksGraph.convert(new FileInputStream("PageLinks_combined.txt"), "arcs_page", PageLinksGraph.DEFAULT_BATCH_SIZE, null, new ProgressLogger());
     }
 }
\ No newline at end of file
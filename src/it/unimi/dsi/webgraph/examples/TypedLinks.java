@@ -0,0 +1,318 @@
+package it.unimi.dsi.webgraph.examples;
+
+import it.unimi.dsi.Util;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrays;
+import it.unimi.dsi.logging.ProgressLogger;
+import it.unimi.dsi.webgraph.AbstractLazyIntIterator;
+import it.unimi.dsi.webgraph.BVGraph;
+import it.unimi.dsi.webgraph.Transform;
+import it.unimi.dsi.webgraph.Transform.LabelledArcFilter;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableGraph;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledImmutableSequentialGraph;
+import it.unimi.dsi.webgraph.labelling.ArcLabelledNodeIterator;
+import it.unimi.dsi.webgraph.labelling.BitStreamArcLabelledImmutableGraph;
+import it.unimi.dsi.webgraph.labelling.IntegerLabelMaskFilter;
+import it.unimi.dsi.webgraph.labelling.Label;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import org.apache.log4j.Logger;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Parameter;
+import com.martiansoftware.jsap.SimpleJSAP;
+import com.martiansoftware.jsap.UnflaggedOption;
+
+/** Views of a typed link graph restricted to some link types.
+ *
+ * <p>The arcs of the graphs built by {@link PageLinksGraph} (and {@link TypedEdgeGraph}) are labelled by a
+ * {@linkplain PageLinksGraph#typeMask(int) mask} with one bit for each type of the links merged into the arc.
+ * {@link #filter(ArcLabelledImmutableGraph, int...)} returns a lazy view, built with
+ * {@link Transform#filterArcs(ArcLabelledImmutableGraph, LabelledArcFilter)} and an {@link IntegerLabelMaskFilter},
+ * containing just the arcs with at least one of the given types: it costs no storage, and it can be used
+ * wherever the original graph could (with the same random-access capabilities).
+ *
+ * <p>When the same subgraph is going to be scanned many times, it can be materialised with
+ * {@link #store(ArcLabelledImmutableGraph, LabelledArcFilter, CharSequence, int, ProgressLogger)}. If the source graph
+ * supports random access, the underlying graph of the lazy view is compressed in parallel by
+ * {@link BVGraph#store(it.unimi.dsi.webgraph.ImmutableGraph, CharSequence, int, int, int, int, int, int, ProgressLogger)};
+ * then, for the labels, the nodes are split into chunks of {@link #CHUNK_SIZE} nodes that are decoded and filtered by
+ * several threads, each one using its own {@linkplain ArcLabelledImmutableGraph#copy() copy} of the graph, and handed
+ * in order to {@link BitStreamArcLabelledImmutableGraph#store(ArcLabelledImmutableGraph, CharSequence, CharSequence, ProgressLogger)},
+ * which writes the labels sequentially. Labels are kept unchanged.
+ */
+
+public class TypedLinks {
+	private static final Logger LOGGER = Util.getLogger( TypedLinks.class );
+
+	/** The number of nodes decoded and filtered by a thread at a time. */
+	public static final int CHUNK_SIZE = 4096;
+
+	private TypedLinks() {}
+
+	/** Returns the mask of a set of link types.
+	 *
+	 * @param type a list of link types.
+	 * @return the union of the {@linkplain PageLinksGraph#typeMask(int) masks} of the given types.
+	 */
+	public static int mask( final int... type ) {
+		int mask = 0;
+		for( int t : type ) mask |= PageLinksGraph.typeMask( t );
+		return mask;
+	}
+
+	/** Returns a lazy view of a typed link graph containing only the arcs having at least one of the given types.
+	 *
+	 * @param graph a graph whose labels are link-type masks.
+	 * @param type a list of link types.
+	 * @return a view of <code>graph</code> containing just the arcs whose label intersects the {@linkplain #mask(int...) mask} of <code>type</code>.
+	 */
+	public static ArcLabelledImmutableGraph filter( final ArcLabelledImmutableGraph graph, final int... type ) {
+		return Transform.filterArcs( graph, new IntegerLabelMaskFilter( "", mask( type ) ) );
+	}
+
+	/** A chunk of filtered nodes. */
+	private final static class Chunk {
+		/** The outdegree of each node of the chunk. */
+		private int[] outdegree;
+		/** The successors of all nodes of the chunk, concatenated. */
+		private int[] successor = IntArrays.EMPTY_ARRAY;
+		/** The labels of the arcs towards {@link #successor}. */
+		private Label[] label = new Label[ 0 ];
+		/** An exception thrown while filtering, or <code>null</code>. */
+		private Throwable error;
+	}
+
+	/** A sequential graph returning the arcs of a random-access graph accepted by a filter, filtered by parallel threads.
+	 * The threads are daemons, and they are stopped as soon as a node iterator is exhausted or fails. */
+	private final static class ParallelFilteredGraph extends ArcLabelledImmutableSequentialGraph {
+		private final ArcLabelledImmutableGraph graph;
+		private final LabelledArcFilter filter;
+		private final int threads;
+
+		private ParallelFilteredGraph( final ArcLabelledImmutableGraph graph, final LabelledArcFilter filter, final int threads ) {
+			this.graph = graph;
+			this.filter = filter;
+			this.threads = threads;
+		}
+
+		@Override
+		public int numNodes() {
+			return graph.numNodes();
+		}
+
+		@Override
+		public Label prototype() {
+			return graph.prototype();
+		}
+
+		/** Filters the chunks of nodes congruent to a given index modulo the number of threads.
+		 *
+		 * @param g a copy of the graph.
+		 * @param index the index of the thread.
+		 * @param queue the queue receiving the filtered chunks.
+		 */
+		private void filter( final ArcLabelledImmutableGraph g, final int index, final ArrayBlockingQueue<Chunk> queue ) throws InterruptedException {
+			final int n = g.numNodes();
+			for( int from = index * CHUNK_SIZE; from < n; from += threads * CHUNK_SIZE ) {
+				final Chunk chunk = new Chunk();
+				try {
+					final int to = Math.min( n, from + CHUNK_SIZE );
+					chunk.outdegree = new int[ to - from ];
+					int m = 0;
+					for( int x = from; x < to; x++ ) {
+						final ArcLabelledNodeIterator.LabelledArcIterator successors = g.successors( x );
+						for( int y; ( y = successors.nextInt() ) != -1; ) {
+							final Label label = successors.label();
+							if ( ! filter.accept( x, y, label ) ) continue;
+							chunk.successor = IntArrays.grow( chunk.successor, m + 1 );
+							chunk.label = ObjectArrays.grow( chunk.label, m + 1 );
+							chunk.successor[ m ] = y;
+							chunk.label[ m++ ] = label.copy();
+							chunk.outdegree[ x - from ]++;
+						}
+					}
+				}
+				catch( Throwable t ) {
+					chunk.error = t;
+					queue.put( chunk );
+					return;
+				}
+				queue.put( chunk );
+			}
+		}
+
+		@Override
+		public ArcLabelledNodeIterator nodeIterator() {
+			final ObjectArrayList<ArrayBlockingQueue<Chunk>> queue = new ObjectArrayList<ArrayBlockingQueue<Chunk>>( threads );
+			final Thread[] thread = new Thread[ threads ];
+			for( int i = 0; i < threads; i++ ) {
+				final int index = i;
+				final ArrayBlockingQueue<Chunk> q = new ArrayBlockingQueue<Chunk>( 2 );
+				queue.add( q );
+				final ArcLabelledImmutableGraph g = graph.copy();
+				thread[ i ] = new Thread( "TypedLinks filter #" + i ) {
+					public void run() {
+						try {
+							filter( g, index, q );
+						}
+						catch( InterruptedException e ) {}
+					}
+				};
+				thread[ i ].setDaemon( true );
+				thread[ i ].start();
+			}
+
+			return new ArcLabelledNodeIterator() {
+				/** The last returned node. */
+				private int last = -1;
+				/** The chunk containing {@link #last}. */
+				private Chunk chunk;
+				/** The position in {@link #chunk} of the first successor of {@link #last}. */
+				private int pos;
+				/** The number of chunks retrieved so far. */
+				private int chunks;
+				private int[] successor = IntArrays.EMPTY_ARRAY;
+				private Label[] label = new Label[ 0 ];
+
+				public boolean hasNext() {
+					return last < graph.numNodes() - 1;
+				}
+
+				@Override
+				public int nextInt() {
+					if ( ! hasNext() ) throw new NoSuchElementException();
+					if ( ++last % CHUNK_SIZE == 0 ) {
+						try {
+							chunk = queue.get( chunks++ % threads ).take();
+						}
+						catch( InterruptedException e ) {
+							stop();
+							throw new RuntimeException( e );
+						}
+						if ( chunk.error != null ) {
+							stop();
+							throw new RuntimeException( chunk.error );
+						}
+						pos = 0;
+					}
+					else pos += chunk.outdegree[ last % CHUNK_SIZE - 1 ];
+					if ( ! hasNext() ) stop();
+					return last;
+				}
+
+				/** Stops the filtering threads, which might be blocked on a full queue. */
+				private void stop() {
+					for( Thread t : thread ) t.interrupt();
+				}
+
+				@Override
+				public int outdegree() {
+					if ( last == -1 ) throw new IllegalStateException();
+					return chunk.outdegree[ last % CHUNK_SIZE ];
+				}
+
+				@Override
+				public int[] successorArray() {
+					final int d = outdegree();
+					successor = IntArrays.ensureCapacity( successor, d );
+					System.arraycopy( chunk.successor, pos, successor, 0, d );
+					return successor;
+				}
+
+				@Override
+				public Label[] labelArray() {
+					final int d = outdegree();
+					label = ObjectArrays.ensureCapacity( label, d );
+					System.arraycopy( chunk.label, pos, label, 0, d );
+					return label;
+				}
+
+				@Override
+				public ArcLabelledNodeIterator.LabelledArcIterator successors() {
+					final int d = outdegree();
+					final Chunk chunk = this.chunk;
+					final int pos = this.pos;
+					return new ArcIterator( chunk, pos, d );
+				}
+			};
+		}
+	}
+
+	/** Iterates over a range of the successors in a chunk. */
+	private final static class ArcIterator extends AbstractLazyIntIterator implements ArcLabelledNodeIterator.LabelledArcIterator {
+		private final Chunk chunk;
+		private final int pos;
+		private final int d;
+		/** The number of successors returned so far. */
+		private int k;
+
+		private ArcIterator( final Chunk chunk, final int pos, final int d ) {
+			this.chunk = chunk;
+			this.pos = pos;
+			this.d = d;
+		}
+
+		public Label label() {
+			if ( k == 0 ) throw new IllegalStateException();
+			return chunk.label[ pos + k - 1 ];
+		}
+
+		public int nextInt() {
+			if ( k == d ) return -1;
+			return chunk.successor[ pos + k++ ];
+		}
+	}
+
+	/** Stores the arcs of a graph accepted by a filter as a {@link BVGraph} and a {@link BitStreamArcLabelledImmutableGraph}.
+	 *
+	 * <p>If <code>graph</code> supports random access, the underlying graph is compressed by <code>threads</code> parallel threads,
+	 * and the arcs whose labels are then written are filtered by <code>threads</code> parallel threads, too; writing the labels,
+	 * however, remains sequential. Otherwise, the lazy view returned by
+	 * {@link Transform#filterArcs(ArcLabelledImmutableGraph, LabelledArcFilter)} is stored sequentially.
+	 *
+	 * @param graph an arc-labelled graph.
+	 * @param filter a filter.
+	 * @param basename the basename of the filtered graph.
+	 * @param threads the number of compression and filtering threads.
+	 * @param pl a progress logger, or <code>null</code>.
+	 */
+	public static void store( final ArcLabelledImmutableGraph graph, final LabelledArcFilter filter, final CharSequence basename, final int threads, final ProgressLogger pl ) throws IOException {
+		if ( threads <= 0 ) throw new IllegalArgumentException( "Invalid number of threads: " + threads );
+		final ArcLabelledImmutableGraph view = Transform.filterArcs( graph, filter );
+		final CharSequence underlyingBasename = basename + ArcLabelledImmutableGraph.UNDERLYINGGRAPH_SUFFIX;
+		if ( graph.randomAccess() ) {
+			BVGraph.store( view, underlyingBasename, -1, -1, -1, -1, 0, threads, pl );
+			BitStreamArcLabelledImmutableGraph.store( new ParallelFilteredGraph( graph, filter, threads ), basename, underlyingBasename, pl );
+		}
+		else {
+			BVGraph.store( view, underlyingBasename, pl );
+			BitStreamArcLabelledImmutableGraph.store( view, basename, underlyingBasename, pl );
+		}
+	}
+
+	public static void main( String args[] ) throws IOException, JSAPException {
+		SimpleJSAP jsap = new SimpleJSAP( TypedLinks.class.getName(), "Stores the subgraph of a typed link graph made of the arcs having at least one of the given link types.",
+				new Parameter[] {
+						new FlaggedOption( "threads", JSAP.INTEGER_PARSER, Integer.toString( Runtime.getRuntime().availableProcessors() ), JSAP.NOT_REQUIRED, 't', "threads", "The number of compression and filtering threads." ),
+						new UnflaggedOption( "sourceBasename", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The basename of the typed link graph." ),
+						new UnflaggedOption( "destBasename", JSAP.STRING_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.NOT_GREEDY, "The basename of the filtered graph." ),
+						new UnflaggedOption( "type", JSAP.INTEGER_PARSER, JSAP.NO_DEFAULT, JSAP.REQUIRED, JSAP.GREEDY, "The link types to keep." ),
+					}
+				);
+
+		JSAPResult jsapResult = jsap.parse( args );
+		if ( jsap.messagePrinted() ) System.exit( 1 );
+
+		final ProgressLogger pl = new ProgressLogger( LOGGER );
+		final ArcLabelledImmutableGraph graph = ArcLabelledImmutableGraph.load( jsapResult.getString( "sourceBasename" ), pl );
+		store( graph, new IntegerLabelMaskFilter( "", mask( jsapResult.getIntArray( "type" ) ) ), jsapResult.getString( "destBasename" ), jsapResult.getInt( "threads" ), pl );
+	}
+}
@@ -10,16 +10,16 @@
  * A log.txt file is also written and it carries the names and information about the ending characters of the encoding for a
  * particular file. This information is used by the searching program to find the appropriate graph files to search a paricular file
  * 
- * These triplets respresent in order, the source, the destination and the ascii value of the label attached with the arc. The encoding
- * has been done in a way that at any place the appearance of a capital letter signifies the end of a title in the database. Similary, a leaf 
- * node should also be considered as the end of a title in the database.
+ * These triplets respresent in order, the source, the destination and the label attached with the arc, encoded as explained in
+ * TitleAlphabet: characters are folded (no case, no accents), mapped to dense symbols, and carry a terminal bit that signifies the end of a title in the database,
+ * and below every terminal arc there is a leaf arc whose label carries the page id of the title.
  * 
  * These arcs are used for creating the prefix tree. The structure of the prefic tree finally created is that out of it's successors, the 
  * first one is always the parent of the node, and then it's children as the remaining successors.
  * 
  * 
  * First of all, this creates two arraylists, 1. Successors: for storing the successors of a particular node
- * and 2. Flags: for storing the ascii value of the labels attached with the the corresponding successor. These two lists will always have the same 
+ * and 2. Flags: for storing the labels attached with the the corresponding successor. These two lists will always have the same 
  * dimension at any given time.
  * 
  * 
@@ -54,8 +54,26 @@ public class labelled_graphgen {
      */
     
 public static int[] make_triplets(String filename, int firstchar, int secondchar) throws Exception{
+        return make_triplets(new File("."), filename, firstchar, secondchar);
+}
+
+/*
+     * Same as above, but the sorted database is read from, and the db_ files and log.txt are written to, the directory dir
+     * instead of the current directory. The names recorded in log.txt stay relative to dir.
+     */
+
+public static int[] make_triplets(File dir, String filename, int firstchar, int secondchar) throws Exception{
+        return make_triplets(dir, filename, TitleAlphabet.load(dir), firstchar, secondchar);
+}
+
+/*
+     * Same as above, but characters are mapped to symbols using the given alphabet, which must contain all (folded) 
+     * characters of the database, rather than the one stored in dir.
+     */
+
+public static int[] make_triplets(File dir, String filename, TitleAlphabet alphabet, int firstchar, int secondchar) throws Exception{
         
-        FileInputStream fstream = new FileInputStream(filename+".txt");
+        FileInputStream fstream = new FileInputStream(new File(dir, filename+".txt"));
         DataInputStream in = new DataInputStream(fstream);
         
         BufferedReader br = new BufferedReader( new InputStreamReader( in ) );
@@ -80,7 +98,6 @@ public static int[] make_triplets(String filename, int firstchar, int secondchar
         Successors.add(new ArrayList<Integer>());
         flags.add(new ArrayList<Integer>());
                 
-        int charint;
         int linelength;
         
         String inLine = br.readLine();
@@ -158,79 +175,49 @@ public static int[] make_triplets(String filename, int firstchar, int secondchar
             
             linelength = pInfo[0].length();
             int curr=0;
-            for(int i=0 ; i<linelength ; i++){
-                charint = pInfo[0].charAt(i);
-                int pos,pos1,pos2;
-                
-                
-                
-                if (charint>64 & charint<91){
-                    charint = charint+32;
-                    pos1 = flags.get(curr).indexOf(charint-32);
-                    pos2 = flags.get(curr).indexOf(charint);
-                    if (pos1!=-1) pos = pos1;
-                    else pos=pos2;
-                }
-                else if (charint >96 & charint < 123){
-                    pos1 = flags.get(curr).indexOf(charint-32);
-                    pos2 = flags.get(curr).indexOf(charint);
-                    if (pos1!=-1) 
-                        pos = pos1;
-                    else 
-                        pos = pos2;
-                }
-                else
-                    pos = flags.get(curr).indexOf(charint);
-          //      if (charint>nodeoffset)
-          //          nodeoffset = charint;
-                //int pos = flags.get(curr).indexOf(charint);
-                if (pos ==-1){
-                    try{
+            for(int i=0 ; i<linelength ; ){
+                // Case and accents are folded away by the alphabet, so there is just one arc to look for
+                int codepoint = pInfo[0].codePointAt(i);
+                i += Character.charCount(codepoint);
+                int key = alphabet.key(codepoint);
+                if (key==-1)
+                    throw new IllegalArgumentException("Character "+codepoint+" of "+pInfo[0]+" is not in the alphabet");
+                int pos = TitleAlphabet.find(flags.get(curr), key);
+                try{
+                    if (pos ==-1){
                         Successors.add(new ArrayList<Integer>());
                         flags.add(new ArrayList<Integer>());
                         
                         numnodes++;
                         
                         Successors.get(curr).add(numnodes);
-                        if (i==linelength-1)
-                        {
-                            flags.get(curr).add(charint-32);
-                            Successors.add(new ArrayList<Integer>());
-                            flags.add(new ArrayList<Integer>());
-                            numnodes++;
-                    		Successors.get(numnodes-1).add(numnodes);
-                    		flags.get(numnodes-1).add(Integer.parseInt(pInfo[1]));
-                        }
-                        else 
-                            flags.get(curr).add(charint);
+                        flags.get(curr).add(key);
                         flags.get(curr).trimToSize();
                         Successors.get(curr).trimToSize();
-                        if(i==linelength-1)
-                        	curr=numnodes-1;
-                        else
-                        	curr=numnodes;
+                        pos = flags.get(curr).size()-1;
                     }
-                    catch(OutOfMemoryError E){// Put things similar to Max_NODES here
-                        System.out.println("caught "+E.getMessage() );
-                        System.out.println(" memory exceeded, so falling back to "+lastregcharint+"and the lastword is "+lastword);
-                        
-                        //if (lastregcharint==0) return 0;
-                         break outerloop;
-                                           
+                    if (i==linelength){
+                        // The title ends here: we set the terminal bit of the arc (which might exist already, if the
+                        // word is repeated in the database, as it happens with the suffixes of the infix index) and
+                        // hang below it a leaf arc carrying the page id.
+                        flags.get(curr).set(pos, flags.get(curr).get(pos) | TitleAlphabet.TERMINAL);
+                        curr = Successors.get(curr).get(pos);
+                        Successors.add(new ArrayList<Integer>());
+                        flags.add(new ArrayList<Integer>());
+                        numnodes++;
+                        Successors.get(curr).add(numnodes);
+                        flags.get(curr).add(TitleAlphabet.leafLabel(Integer.parseInt(pInfo[1])));
                     }
+                    else
+                        curr = Successors.get(curr).get(pos);
                 }
-                
-                else{
-                	if(i==linelength-1)
-                	{
-                		numnodes++;
-                		Successors.add(new ArrayList<Integer>());
-                        flags.add(new ArrayList<Integer>());
-                		Successors.get(pos).add(numnodes);
-                		flags.get(pos).add(Integer.parseInt(pInfo[1]));
-                	}
-                    curr = Successors.get(curr).get(pos);
+                catch(OutOfMemoryError E){// Put things similar to Max_NODES here
+                    System.out.println("caught "+E.getMessage() );
+                    System.out.println(" memory exceeded, so falling back to "+lastregcharint+"and the lastword is "+lastword);
                     
+                    //if (lastregcharint==0) return 0;
+                     break outerloop;
+                                       
                 }
                 
             }
@@ -288,8 +275,8 @@ public static int[] make_triplets(String filename, int firstchar, int secondchar
         
         
         String newfile = "db_"+basename+"_"+String.valueOf(lastregchar2)+".txt";
-        BufferedWriter bw = new BufferedWriter(new FileWriter(new File(newfile), true));
-        BufferedWriter logwriter = new BufferedWriter(new FileWriter(new File("log.txt"), true));
+        BufferedWriter bw = new BufferedWriter(new FileWriter(new File(dir, newfile), true));
+        BufferedWriter logwriter = new BufferedWriter(new FileWriter(new File(dir, "log.txt"), true));
         logwriter.write(newfile+"\t"+lastregcharint+"\t"+lastregchar2);
         logwriter.newLine();
         //logwriter.write("The first character of the last word coded is "+lastregcharint+" and the 2nd last character is "+lastregchar2);
@@ -18,6 +18,8 @@
 
 package it.unimi.dsi.webgraph.examples;
 
+import java.io.File;
+
 /**
  *
  * @author SCARS Lapi
@@ -29,11 +31,21 @@ public class main_graphgen {
      */
     public static void main(String[] args) throws Exception{
         // TODO code application logic here
-        final String basename = "Database_sorted";
+        build(new File("."), "Database_sorted");
+    }
+
+    /* Runs make_triplets repeatedly over the sorted database basename.txt found in dir, until the whole database
+     * has been coded into db_ files (and log.txt) inside dir. Before that, the alphabet of the database is computed 
+     * and stored in dir, so that the most frequent characters get the smallest labels.
+     */
+    public static void build(File dir, String basename) throws Exception{
+        TitleAlphabet alphabet = TitleAlphabet.compute(new File(dir, basename+".txt"));
+        alphabet.store(dir);
+        System.out.println("The alphabet has "+alphabet.size()+" symbols");
         boolean stop = false;
         int firstchar=0,secondchar=0;
         while(!stop){
-            int[] endchars = labelled_graphgen.make_triplets(basename,firstchar,secondchar);
+            int[] endchars = labelled_graphgen.make_triplets(dir,basename,alphabet,firstchar,secondchar);
             firstchar = endchars[0];
             secondchar = endchars[1];
             if (endchars[2]==1)
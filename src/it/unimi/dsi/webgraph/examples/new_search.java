@@ -32,47 +32,41 @@ public class new_search {
     // This method takes a Label array and returns the corresponding labels in the form of an integer array
     public static int[] get_intlabels(Label[] labelstream,int m ) throws Exception{
         int successorlabels[] = new int[m];
-        for(int i=0;i<m;i++){
-            String S = labelstream[i].toString();
-            char ch1 = ':';
-            char ch2 = '(';
-            int begin = S.indexOf(ch1);
-            int end = S.indexOf(ch2);
-            String stringint = S.substring(begin+1, end-1);
-            successorlabels[i] = Integer.parseInt(stringint);
-        }
+        for(int i=0;i<m;i++)
+            successorlabels[i] = labelstream[i].getInt();
         return successorlabels;
     }
     
     
-    /*This method takes in an ArcLabelledImmutableGraph graph in which the string is to be searched,
-     * a String S to be searched and a boolean varaible to determine what sort of output is expected.
+    /*This method takes in an ArcLabelledImmutableGraph graph in which the string is to be searched, the alphabet the graph
+     * was built with (see TitleAlphabet.load()), a String S to be searched and a boolean varaible to determine what sort of
+     * output is expected.
      * 
      * The zeroth node has no parent node, while all other nodes have their parent node as theor first successor.
      * To find any string, we start from the zeroth node and continue to search from there just as in a normal prefix tree.
      * The only point to keep in mind is that the first successor of every node except the zeroth node is the parent node of this
-     * node under consideration. The corresponding labels are checked to match the ascii value with the required value.
+     * node under consideration. The corresponding labels are checked to match the key of the required character (code point),
+     * case and accents being folded away as explained in TitleAlphabet.
      * 
      * 
      */
     
-    public static int full_match(ArcLabelledImmutableGraph graph,String S,boolean method) throws Exception{
+    public static int full_match(ArcLabelledImmutableGraph graph,TitleAlphabet alphabet,String S,boolean method) throws Exception{
                 
     	final int start = 0;
     	final int stop = S.length();
     	int curr = 0;
-    	int nodevalue;
-    	int charint;
+    	int key;
 
-		for( int i = start; i < stop; i++ ) {	
+		for( int i = start; i < stop; ) {	
+                    int codepoint = S.codePointAt(i);
+                    i += Character.charCount(codepoint);
+                    key = alphabet.key(codepoint);
+                    if (key == -1)// not in the alphabet, so not in any title
+                        return 0;
                     int m = graph.outdegree(curr);
                     Label labelstream[] = graph.labelArray(curr);
                     int successorlabels[] = get_intlabels(labelstream,m);
-                    charint = S.charAt(i);
-                    if (charint>64 & charint <91)
-                        charint = charint +32;
-                    else if(charint==32)
-                        charint =95;
                     boolean match = false;
                     int searchstart;
                     if (curr==0)
@@ -81,11 +75,7 @@ public class new_search {
                         searchstart = 1;
                     int nextnode=0;
                     for (int j=searchstart;j<m & match==false;j++){
-                        nodevalue =successorlabels[j];
-                        //System.out.println("The label returned is "+nodevalue);
-                        if (nodevalue>=65 & nodevalue<=90)
-                            nodevalue+=32;
-                        if (charint == nodevalue){
+                        if (TitleAlphabet.matches(successorlabels[j], key)){
                             match = true;
                             nextnode = j;
                         }
@@ -100,48 +90,34 @@ public class new_search {
                 return curr;
     }
     
-    public static ArrayList<String> DFS(ArcLabelledImmutableGraph graph,int currNode) throws Exception
+    /* This returns, for each leaf below currNode, the characters on the path from currNode to the leaf followed by
+     * a TAB and the page id carried by the leaf arc.
+     */
+    public static ArrayList<String> DFS(ArcLabelledImmutableGraph graph,TitleAlphabet alphabet,int currNode) throws Exception
     {
     	
     	ArrayList<String> result=new ArrayList<String>();
     	int outDg = graph.outdegree(currNode);
     	int searchStart=0;
     	if(currNode!=0)searchStart=1;
-    	if(currNode!=0 && outDg==1)
-    	{
-    		//leaf node
-    		result.add("");
-    		return result;
-    	}
     	Label labelstream[] = graph.labelArray(currNode);
 		int successorlabels[] = get_intlabels(labelstream,outDg);
+		int successors[] = graph.successorArray(currNode);
     	for(int i=searchStart;i<outDg;++i)
     	{
     		int edgeLabel=successorlabels[i];
+    		if(TitleAlphabet.isLeaf(edgeLabel))
+    		{
+    			//leaf arc
+    			result.add("\t"+TitleAlphabet.id(edgeLabel));
+    			continue;
+    		}
     		
     		//recursion
-    		ArrayList<String> tempResults=DFS(graph,graph.successorArray(currNode)[i]);
-    		ArrayList<String> resultsHolder=new ArrayList<String>();
+    		ArrayList<String> tempResults=DFS(graph,alphabet,successors[i]);
+    		String c=alphabet.string(edgeLabel);
     		for(int j=0;j<tempResults.size();++j)
-    		{
-    			StringBuilder temp=new StringBuilder();
-    			String currStr=tempResults.get(j);
-    			if(graph.outdegree(graph.successorArray(currNode)[i])==1)
-    			{
-    				temp.append("\t");
-    				temp.append(edgeLabel);
-    			}
-    			else{
-    				
-    				if(edgeLabel>=65 && edgeLabel<=90)
-    					temp.append((char)(edgeLabel+32));
-    				else
-    					temp.append((char)edgeLabel);
-    				temp.append(currStr);
-    			}
-    			resultsHolder.add(j, temp.toString());
-    		}
-    		result.addAll(resultsHolder);
+    			result.add(c+tempResults.get(j));
     		
     	}
     	return result;
@@ -149,24 +125,23 @@ public class new_search {
     
     
     //Go to the node for which the path from root to itself has the label S. And return all the leaf nodes under it.
-    public static ArrayList<String> getPrefixMatches(ArcLabelledImmutableGraph graph,String S) throws Exception
+    public static ArrayList<String> getPrefixMatches(ArcLabelledImmutableGraph graph,TitleAlphabet alphabet,String S) throws Exception
     {
     	ArrayList<String> result=new ArrayList<String>();
     	final int start = 0;
     	final int stop = S.length();
     	int curr = 0;
-    	int nodevalue;
-    	int charint;
+    	int key;
 
-    	for( int i = start; i < stop; i++ ) {	
+    	for( int i = start; i < stop; ) {	
+    		int codepoint = S.codePointAt(i);
+    		i += Character.charCount(codepoint);
+    		key = alphabet.key(codepoint);
+    		if (key == -1)// not in the alphabet, so not in any title
+    			return null;
     		int m = graph.outdegree(curr);
     		Label labelstream[] = graph.labelArray(curr);
     		int successorlabels[] = get_intlabels(labelstream,m);
-    		charint = S.charAt(i);
-    		if (charint>64 & charint <91)
-    			charint = charint +32;
-    		else if(charint==32)
-    			charint =95;
     		boolean match = false;
     		int searchstart;
     		if (curr==0)
@@ -175,11 +150,7 @@ public class new_search {
     			searchstart = 1;
     		int nextnode=0;
     		for (int j=searchstart;j<m & match==false;j++){
-    			nodevalue =successorlabels[j];
-    			//System.out.println("The label returned is "+nodevalue);
-    			if (nodevalue>=65 & nodevalue<=90)
-    				nodevalue+=32;
-    			if (charint == nodevalue){
+    			if (TitleAlphabet.matches(successorlabels[j], key)){
     				match = true;
     				nextnode = j;
     			}
@@ -193,7 +164,7 @@ public class new_search {
     	//now return all the descendants of curr. DFS is used here.
     	if(curr!=0) 
     	{
-    		result=DFS(graph,curr);
+    		result=DFS(graph,alphabet,curr);
     		ArrayList<String> toReturn=new ArrayList<String>();
     		
     		for(int k=0;k<result.size();++k)
@@ -216,10 +187,16 @@ public class new_search {
      */
     
     public static ArcLabelledImmutableGraph[] graphloader()throws Exception{
+        return graphloader(new File("."));
+    }
+    
+    /* Same as graphloader(), but log.txt and the graph files it names are looked up in the directory dir.
+     */
+    public static ArcLabelledImmutableGraph[] graphloader(File dir)throws Exception{
         ArrayList<String> namelist = new ArrayList<String>();
         //ProgressLogger plist = new ProgressLogger();
         String basename,line,filename;
-        FileInputStream fstream = new FileInputStream("log.txt");
+        FileInputStream fstream = new FileInputStream(new File(dir, "log.txt"));
         DataInputStream in = new DataInputStream(fstream);
         BufferedReader br = new BufferedReader(new InputStreamReader(in));
         while((line = br.readLine())!=null){
@@ -229,7 +206,7 @@ public class new_search {
             basename = filename.substring(0, j);
             //ProgressLogger pl = new ProgressLogger();
             //ArcLabelledImmutableGraph graph = ArcLabelledImmutableGraph.load(basename,pl);
-            namelist.add(basename);
+            namelist.add(new File(dir, basename).getPath());
         }
         namelist.trimToSize();
         int n=namelist.size();
@@ -252,8 +229,12 @@ public class new_search {
     
     
     public static int[][] get_graph_boundaries()throws Exception{
+        return get_graph_boundaries(new File("."));
+    }
+    
+    public static int[][] get_graph_boundaries(File dir)throws Exception{
         ArrayList<int []> graphbounds= new ArrayList<int []>();
-        FileInputStream fstream = new FileInputStream("log.txt");
+        FileInputStream fstream = new FileInputStream(new File(dir, "log.txt"));
         DataInputStream in = new DataInputStream(fstream);
         BufferedReader br = new BufferedReader(new InputStreamReader(in));
         String line;
@@ -319,6 +300,21 @@ public class new_search {
         return hi;
     }
     
+    /* This modifies the first two characters of str the way the graph boundaries were recorded, that is, as main_modify_database
+     * modifies titles (which does not fold characters as TitleAlphabet does: folding happens only inside the title trees), and then
+     * calls find_file to get the number of the graph file str should be searched in.
+     * 
+     */
+    
+    public static int find_file(String str, int[][] graphbounds)throws Exception{
+        String prefix = main_modify_database.modify(str.substring(0, Math.min(2, str.length())).replace(' ', '_'));
+        int firstchar = prefix.charAt(0);
+        int secondchar =0;
+        if(prefix.length()>1)
+            secondchar = prefix.charAt(1);
+        return find_file(firstchar, secondchar, graphbounds.length, graphbounds);
+    }
+    
     /* This method is the one to be called by any external applcation for searching a string in the database. This basically finds
      * out the exact file which can be expected to contain the string by using the method find_file, and then calls a method to 
      * search for the same in that file. This takes as input, an array of graph files, the string to be searched and the graphbounds
@@ -326,48 +322,23 @@ public class new_search {
      * 
      */
     
-    public static int find_string(ArcLabelledImmutableGraph[] graphlist, String str, int[][] graphbounds) throws Exception{
-        int n = graphlist.length;
+    public static int find_string(ArcLabelledImmutableGraph[] graphlist, TitleAlphabet alphabet, String str, int[][] graphbounds) throws Exception{
         //ProgressLogger pl1 = new ProgressLogger();
-        ArcLabelledImmutableGraph graph = graphlist[n-1];
-        int firstchar = (int)str.charAt(0);
-        if(firstchar>=97 && firstchar<=122)
-            firstchar -= 32;
-        int secondchar =0;
-        if(str.length()>1){
-            secondchar = str.charAt(1);
-            if(secondchar>=65 && secondchar<=90)
-                secondchar += 32;
-        }
-        int q = find_file(firstchar, secondchar, n, graphbounds);
-        graph = graphlist[q];
-        int ans = new_search.full_match(graph,str ,true);
-        if (ans==0)
-            System.out.println("The string was searched in graph number "+q+" and string is not present");
-        else
-            System.out.println("The string was searched in graph number "+q+" and was found at it's "+ans+"th node");
-        return ans;
+        int q = find_file(str, graphbounds);
+        ArcLabelledImmutableGraph graph = graphlist[q];
+        return new_search.full_match(graph,alphabet,str ,true);
     }
     /*
-     * Finds out the exact file in which to search for the prefix and then returns all the page titles which have str as a prefix
+     * Finds out the exact file in which to search for the prefix and then returns all the page titles which have str as a prefix.
+     * All of them are kept in memory at once: for prefixes with many completions use PrefixPage.get(), which returns them
+     * a page at a time.
      */
-    public static HashMap<Integer,String> prefixMatch(ArcLabelledImmutableGraph[] graphlist, String str, int[][] graphbounds) throws Exception
+    public static HashMap<Integer,String> prefixMatch(ArcLabelledImmutableGraph[] graphlist, TitleAlphabet alphabet, String str, int[][] graphbounds) throws Exception
     {
-    	int n = graphlist.length;
-        ArcLabelledImmutableGraph graph = graphlist[n-1];
-        int firstchar = (int)str.charAt(0);
-        if(firstchar>=97 && firstchar<=122)
-            firstchar -= 32;
-        int secondchar =0;
-        if(str.length()>1){
-            secondchar = str.charAt(1);
-            if(secondchar>=65 && secondchar<=90)
-                secondchar += 32;
-        }
-        int q = find_file(firstchar, secondchar, n, graphbounds);
+        int q = find_file(str, graphbounds);
         System.out.println("searching in file: "+q);
-        graph = graphlist[q];
-        ArrayList<String> result= new_search.getPrefixMatches(graph,str);
+        ArcLabelledImmutableGraph graph = graphlist[q];
+        ArrayList<String> result= new_search.getPrefixMatches(graph,alphabet,str);
         HashMap<Integer,String> toReturn=new HashMap<Integer, String>();
         if(result==null)return null;
         for(int i=0;i<result.size();++i)
@@ -389,10 +360,11 @@ public class new_search {
         System.out.println("Loaded the graphs");
         int graphbounds[][] = new_search.get_graph_boundaries();
         System.out.println("Loaded the graphbounds");
+        TitleAlphabet alphabet = TitleAlphabet.load(new File("."));
         //BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
         String str="Cha";
         //find the matching titles. Call the function prefixMatch.
-        HashMap<Integer,String> result=new_search.prefixMatch(graphlist,str,graphbounds);
+        HashMap<Integer,String> result=new_search.prefixMatch(graphlist,alphabet,str,graphbounds);
         if(result==null)
         {
         	System.out.println("no matches found");
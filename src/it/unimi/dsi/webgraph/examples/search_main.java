@@ -30,6 +30,7 @@ public class search_main {
         System.out.println("Loaded the graphs");
         int graphbounds[][] = new_search.get_graph_boundaries();
         System.out.println("Loaded the graphbounds");
+        TitleAlphabet alphabet = TitleAlphabet.load(new File("."));
         //BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
         String str="A";
         FileInputStream fstream = new FileInputStream("Database_sorted.txt");
@@ -39,7 +40,12 @@ public class search_main {
         int number_iterations=0;
         while((str= br.readLine())!=null){
             //System.out.println("Please give the word you want to search for");
-            int ans = new_search.find_string(graphlist,str,graphbounds);
+            int q = new_search.find_file(str, graphbounds);
+            int ans = new_search.full_match(graphlist[q],alphabet,str,true);
+            if (ans==0)
+                System.out.println("The string was searched in graph number "+q+" and string is not present");
+            else
+                System.out.println("The string was searched in graph number "+q+" and was found at it's "+ans+"th node");
             if(ans ==0){
                 //System.out.println("String not found");
                 bw.write(str);
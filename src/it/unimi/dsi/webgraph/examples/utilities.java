@@ -21,6 +21,10 @@ import java.io.InputStreamReader;
 public class utilities {
     
     
+    /* Rescans the text dump to print self-loops and sources with too many outlinks. Once the dump has been converted
+     * into a graph, DegreeSkewStats gives the same information (and outdegree percentiles, hubs and duplicate arcs) with a
+     * parallel scan of the graph, in property-file format.
+     */
     public static void find_same_sds(String filename) throws FileNotFoundException, IOException{
         FileInputStream fstream = new FileInputStream(filename+".txt");
         DataInputStream in = new DataInputStream(fstream);
@@ -60,6 +64,9 @@ public class utilities {
     }
     
     
+    /* Concatenates PageLinks.txt and PageLinks2.txt, skipping the sources of the second dump up to the last source of the first one.
+     * If both dumps have been converted by PageLinksGraph, PageLinksUnion merges the graphs instead, even if the dumps overlap arbitrarily.
+     */
     public static void merge_ids() throws FileNotFoundException, IOException{
         FileInputStream fstream = new FileInputStream("PageLinks.txt");
         DataInputStream in = new DataInputStream(fstream);
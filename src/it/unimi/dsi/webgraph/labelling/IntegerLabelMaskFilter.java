@@ -0,0 +1,41 @@
+package it.unimi.dsi.webgraph.labelling;
+
+import it.unimi.dsi.webgraph.Transform.LabelledArcFilter;
+
+/** A filter for labelled graphs preserving those arcs whose integer labels, seen as bit masks, intersect a specified mask.
+ *
+ * <p>This filter is useful when the label of an arc is a set of attributes represented as bits
+ * (e.g., the types of the links merged into the arc): the arcs having at least one of the
+ * attributes in the mask will be preserved.
+ */
+public class IntegerLabelMaskFilter implements LabelledArcFilter {
+	/** The mask that labels must intersect. */
+	private final int mask;
+	/** The key to retrieve labels. If <code>null</code>, the well-known attribute will be retrieved. */
+	private final String key;
+
+	/** Creates a new integer-label mask filter.
+ 	 *
+	 * @param key the key to be queried to filter an arc, or the empty string to query the well-known attribute.
+	 * @param mask the mask that the labels of preserved arcs must intersect.
+	 */
+	public IntegerLabelMaskFilter( final String key, final int mask ) {
+		this.key = key.length() == 0 ? null : key;
+		this.mask = mask;
+	}
+
+	/** Creates a new integer-label mask filter.
+ 	 *
+	 * @param keyAndMask the key to be queried to filter an arc, or the empty string to query the well-known attribute,
+	 * followed by the mask (in any format accepted by {@link Integer#decode(String)}).
+	 */
+	public IntegerLabelMaskFilter( final String... keyAndMask ) {
+		if ( keyAndMask.length != 2 ) throw new IllegalArgumentException( "You must specify a key name and a mask" );
+		this.key = keyAndMask[ 0 ].length() == 0 ? null : keyAndMask[ 0 ];
+		this.mask = Integer.decode( keyAndMask[ 1 ] ).intValue();
+	}
+
+	public boolean accept( int i, int j, Label label ) {
+		return ( ( key == null ? label.getInt() : label.getInt( key ) ) & mask ) != 0;
+	}
+}
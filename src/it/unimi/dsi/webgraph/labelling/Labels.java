@@ -28,4 +28,18 @@ public class Labels {
 			return first != null? first : second;
 		}
 	};
+
+	/** A strategy for integer labels (i.e., instances of {@link AbstractIntLabel}) that computes the
+	 *  bitwise OR of their values; it is useful when labels are sets represented as bit masks.
+	 *  The resulting label is a new copy of the first label.
+	 */
+	public static final LabelMergeStrategy OR_MERGE_STRATEGY = new LabelMergeStrategy() {
+		public Label merge( Label first, Label second ) {
+			if ( first == null ) return second;
+			if ( second == null ) return first;
+			final AbstractIntLabel result = (AbstractIntLabel)first.copy();
+			result.value |= second.getInt();
+			return result;
+		}
+	};
 }